@@ -383,6 +383,19 @@ public class FtcRobotControllerActivity extends Activity
 
     // check to see if there is a preferred Wi-Fi to use.
     checkPreferredChannel();
+
+    startTeamCodeWarmup();
+  }
+
+  // Let TeamCode prepare the autonomous OpModes (parse the XML, open the log)
+  // in the background before any OpMode is selected. TeamCode depends on this
+  // module, not the other way around, so the entry point is found by name.
+  protected void startTeamCodeWarmup() {
+    try {
+      Class.forName("org.firstinspires.ftc.teamcode.common.RobotWarmup").getMethod("start").invoke(null);
+    } catch (Exception e) {
+      RobotLog.ww(TAG, e, "unable to start the TeamCode warm-up");
+    }
   }
 
   protected UpdateUI createUpdateUI() {
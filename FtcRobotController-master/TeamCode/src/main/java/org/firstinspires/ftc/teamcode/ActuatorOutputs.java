@@ -0,0 +1,136 @@
+package org.firstinspires.ftc.teamcode;
+
+import com.qualcomm.robotcore.hardware.DcMotor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// Buffers the commands for the motors and servos during a cycle and
+// writes them all in flush() at the end of the cycle. Every write is a
+// USB/Lynx transaction, so a command that is no different from the last
+// value written, e.g. setPower(0.0) on every loop of a TeleOp while a
+// button is not pressed, is not written at all; only the last command of
+// a cycle for each output is considered.
+//
+// Once an output is used, don't write to the device directly: the output
+// would no longer know what value the device has.
+public class ActuatorOutputs {
+
+    private static final double POWER_EPSILON = 0.001;
+    private static final double POSITION_EPSILON = 0.001;
+
+    private final List<MotorOutput> motors = new ArrayList<>();
+    private final List<ServoOutput> servos = new ArrayList<>();
+    private long writes;
+    private long suppressedWrites;
+
+    public class MotorOutput {
+        public final RobotMotor motor;
+
+        private double power;
+        private boolean powerPending;
+        private double writtenPower = Double.NaN; // unknown
+        private DcMotor.RunMode mode;
+        private DcMotor.RunMode writtenMode; // null if unknown
+
+        private MotorOutput(RobotMotor pMotor) {
+            motor = pMotor;
+        }
+
+        public void setPower(double pPower) {
+            power = pPower;
+            powerPending = true;
+        }
+
+        public void setMode(DcMotor.RunMode pMode) {
+            mode = pMode;
+        }
+
+        private void flush() {
+            // The mode must be written first; see the note in FTCAuto.
+            if (mode != null) {
+                if (mode != writtenMode) {
+                    motor.setMode(mode);
+                    writtenMode = mode;
+                    writes++;
+                } else
+                    suppressedWrites++;
+                mode = null;
+            }
+
+            if (powerPending) {
+                if (Double.isNaN(writtenPower) || Math.abs(power - writtenPower) > POWER_EPSILON) {
+                    motor.setPower(power);
+                    writtenPower = power;
+                    writes++;
+                } else
+                    suppressedWrites++;
+                powerPending = false;
+            }
+        }
+    }
+
+    public class ServoOutput {
+        public final RobotServo servo;
+
+        private double position;
+        private boolean positionPending;
+        private double writtenPosition = Double.NaN; // unknown
+
+        private ServoOutput(RobotServo pServo) {
+            servo = pServo;
+        }
+
+        public void setPosition(double pPosition) {
+            position = pPosition;
+            positionPending = true;
+        }
+
+        private void flush() {
+            if (!positionPending)
+                return;
+
+            if (Double.isNaN(writtenPosition) || Math.abs(position - writtenPosition) > POSITION_EPSILON) {
+                servo.setPosition(position);
+                writtenPosition = position;
+                writes++;
+            } else
+                suppressedWrites++;
+            positionPending = false;
+        }
+    }
+
+    public MotorOutput addMotor(RobotMotor pMotor) {
+        MotorOutput output = new MotorOutput(pMotor);
+        motors.add(output);
+        return output;
+    }
+
+    public ServoOutput addServo(RobotServo pServo) {
+        ServoOutput output = new ServoOutput(pServo);
+        servos.add(output);
+        return output;
+    }
+
+    // Write everything that has changed since the last flush. Call once at
+    // the end of every cycle and after stopping the actuators.
+    public void flush() {
+        for (int i = 0; i < motors.size(); i++)
+            motors.get(i).flush();
+        for (int i = 0; i < servos.size(); i++)
+            servos.get(i).flush();
+    }
+
+    public long getWrites() {
+        return writes;
+    }
+
+    public long getSuppressedWrites() {
+        return suppressedWrites;
+    }
+
+    @Override
+    public String toString() {
+        return "writes " + writes + ", suppressed " + suppressedWrites;
+    }
+}
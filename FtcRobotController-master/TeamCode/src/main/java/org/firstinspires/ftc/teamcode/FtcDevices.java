@@ -0,0 +1,85 @@
+package org.firstinspires.ftc.teamcode;
+
+import com.qualcomm.hardware.lynx.LynxModule;
+import com.qualcomm.robotcore.hardware.DcMotor;
+import com.qualcomm.robotcore.hardware.DcMotorEx;
+import com.qualcomm.robotcore.hardware.HardwareMap;
+import com.qualcomm.robotcore.hardware.Servo;
+
+import java.util.List;
+
+// The devices of the robot from the HardwareMap of the OpMode.
+//
+// The hubs are put into manual bulk caching mode, so that all of the
+// sensor values of a hub come back in one Lynx transaction instead of one
+// transaction per read.
+public class FtcDevices implements RobotDevices {
+
+    public final HardwareMap hwMap;
+    private final List<LynxModule> hubs;
+
+    public FtcDevices(HardwareMap pHardwareMap) {
+        hwMap = pHardwareMap;
+        hubs = hwMap.getAll(LynxModule.class);
+        for (LynxModule hub : hubs)
+            hub.setBulkCachingMode(LynxModule.BulkCachingMode.MANUAL);
+    }
+
+    @Override
+    public RobotMotor getMotor(String pName) {
+        final DcMotorEx motor = hwMap.get(DcMotorEx.class, pName);
+        return new RobotMotor() {
+            @Override
+            public void setDirection(DcMotor.Direction pDirection) {
+                motor.setDirection(pDirection);
+            }
+
+            @Override
+            public void setZeroPowerBehavior(DcMotor.ZeroPowerBehavior pZeroPowerBehavior) {
+                motor.setZeroPowerBehavior(pZeroPowerBehavior);
+            }
+
+            @Override
+            public void setMode(DcMotor.RunMode pMode) {
+                motor.setMode(pMode);
+            }
+
+            @Override
+            public void setPower(double pPower) {
+                motor.setPower(pPower);
+            }
+
+            @Override
+            public int getCurrentPosition() {
+                return motor.getCurrentPosition();
+            }
+
+            @Override
+            public double getVelocity() {
+                return motor.getVelocity();
+            }
+        };
+    }
+
+    @Override
+    public RobotServo getServo(String pName) {
+        final Servo servo = hwMap.get(Servo.class, pName);
+        return new RobotServo() {
+            @Override
+            public void setPosition(double pPosition) {
+                servo.setPosition(pPosition);
+            }
+        };
+    }
+
+    @Override
+    public void clearSensorCache() {
+        for (LynxModule hub : hubs)
+            hub.clearBulkCache();
+    }
+
+    @Override
+    public long nanoTime() {
+        return System.nanoTime();
+    }
+}
@@ -1,33 +1,91 @@
 package org.firstinspires.ftc.teamcode;
 
-import com.qualcomm.robotcore.hardware.DcMotorSimple;
-import com.qualcomm.robotcore.hardware.DistanceSensor;
-import com.qualcomm.robotcore.hardware.HardwareMap;
 import com.qualcomm.robotcore.hardware.DcMotor;
-import com.qualcomm.robotcore.hardware.Servo;
-import com.qualcomm.robotcore.hardware.ColorSensor;
+import com.qualcomm.robotcore.hardware.HardwareMap;
+
+import java.util.HashMap;
 
 // Common hardware definitions for Autonomous and TeleOp.
+//
+// The devices come from a RobotDevices: FtcDevices on the robot or
+// SimulatedDevices off the robot.
+//
+// Call refresh() once per cycle and read the values of the sensors from
+// sensors; on the robot the hubs are in manual bulk caching mode, so
+// reading a sensor through its device returns the value cached at the
+// last refresh. In the same way, command the actuators through outputs,
+// e.g. leftFrontOutput, and call outputs.flush() once per cycle.
 public class ProgrammingBoardHardware {
-      
-    public final HardwareMap hwMap;
-    public final DcMotor leftFrontMotor;
+
+    //    Rev HD Hex Motor 40:1 RPM 150, clicks per revolution 1120
+    public static final double CLICKS_PER_MOTOR_REV = 1120;
+    public static final double MOTOR_RPM = 150;
+    public static final double MAX_VELOCITY = Math.floor((CLICKS_PER_MOTOR_REV * MOTOR_RPM) / 60); // clicks per second
+    public static final double WHEEL_DIAMETER_IN = 4.0;
+    public static final double CLICKS_PER_INCH = CLICKS_PER_MOTOR_REV / (WHEEL_DIAMETER_IN * 3.1416);
+
+    public final HardwareMap hwMap; // null off the robot
+    public final RobotDevices devices;
+    public final RobotMotor leftFrontMotor;
     //**TODO public final Servo basicServo;
     //**TODO public final ColorSensor colorSensor;
 
+    public final ActuatorOutputs outputs = new ActuatorOutputs();
+    public final ActuatorOutputs.MotorOutput leftFrontOutput;
+    private final HashMap<String, ActuatorOutputs.ServoOutput> servoOutputs = new HashMap<>();
+    public final SensorState sensors = new SensorState();
+
+    // The values of all of the sensors at the last refresh(). Primitive
+    // fields only, so reading them costs nothing.
+    public static class SensorState {
+        public long nanoTime; // RobotDevices.nanoTime() at the refresh
+        public int leftFrontPosition; // clicks
+        public double leftFrontVelocity; // clicks per second
+    }
+
     public ProgrammingBoardHardware(HardwareMap hwm) {
-        hwMap = hwm;
-   
+        this(hwm, new FtcDevices(hwm));
+    }
+
+    public ProgrammingBoardHardware(RobotDevices pDevices) {
+        this(null, pDevices);
+    }
+
+    private ProgrammingBoardHardware(HardwareMap pHardwareMap, RobotDevices pDevices) {
+        hwMap = pHardwareMap;
+        devices = pDevices;
+
         // Motor
-        leftFrontMotor = hwMap.get(DcMotor.class, "lf");
+        leftFrontMotor = devices.getMotor("lf");
         leftFrontMotor.setDirection(DcMotor.Direction.REVERSE);
         leftFrontMotor.setPower(0);
         leftFrontMotor.setZeroPowerBehavior(DcMotor.ZeroPowerBehavior.BRAKE);
+        leftFrontOutput = outputs.addMotor(leftFrontMotor);
  
         // Servo
-        //**TODO basicServo = hwMap.get(Servo.class, "basic_servo");
+        //**TODO basicServo = devices.getServo("basic_servo");
     
         // Color sensor
         //**TODO colorSensor = hwMap.get(ColorSensor.class, "color_sensor");
     }
+
+    // The output for a servo in the hardware configuration, e.g. one that
+    // only a team-defined action uses.
+    public ActuatorOutputs.ServoOutput getServoOutput(String pName) {
+        ActuatorOutputs.ServoOutput servoOutput = servoOutputs.get(pName);
+        if (servoOutput == null) {
+            servoOutput = outputs.addServo(devices.getServo(pName));
+            servoOutputs.put(pName, servoOutput);
+        }
+        return servoOutput;
+    }
+
+    // Read all of the sensors; on the robot, with one bulk read per hub.
+    public void refresh() {
+        devices.clearSensorCache();
+
+        sensors.nanoTime = devices.nanoTime();
+        sensors.leftFrontPosition = leftFrontMotor.getCurrentPosition();
+        sensors.leftFrontVelocity = leftFrontMotor.getVelocity();
+    }
 }
@@ -0,0 +1,18 @@
+package org.firstinspires.ftc.teamcode;
+
+// Where ProgrammingBoardHardware gets its devices: FtcDevices on the
+// robot, SimulatedDevices off the robot.
+public interface RobotDevices {
+
+    // The names are those in the robot's hardware configuration.
+    RobotMotor getMotor(String pName);
+
+    RobotServo getServo(String pName);
+
+    // Make the next reads of the sensors return new values; see
+    // ProgrammingBoardHardware.refresh().
+    void clearSensorCache();
+
+    // The time base for the sensor values, System.nanoTime() on the robot.
+    long nanoTime();
+}
@@ -0,0 +1,20 @@
+package org.firstinspires.ftc.teamcode;
+
+import com.qualcomm.robotcore.hardware.DcMotor;
+
+// The part of a DcMotorEx that the robot code uses, so that the same code
+// can drive a real motor or a simulated one; see RobotDevices.
+public interface RobotMotor {
+
+    void setDirection(DcMotor.Direction pDirection);
+
+    void setZeroPowerBehavior(DcMotor.ZeroPowerBehavior pZeroPowerBehavior);
+
+    void setMode(DcMotor.RunMode pMode);
+
+    void setPower(double pPower);
+
+    int getCurrentPosition(); // clicks
+
+    double getVelocity(); // clicks per second
+}
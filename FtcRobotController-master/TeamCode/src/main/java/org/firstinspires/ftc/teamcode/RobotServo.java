@@ -0,0 +1,7 @@
+package org.firstinspires.ftc.teamcode;
+
+// The part of a Servo that the robot code uses; see RobotDevices.
+public interface RobotServo {
+
+    void setPosition(double pPosition);
+}
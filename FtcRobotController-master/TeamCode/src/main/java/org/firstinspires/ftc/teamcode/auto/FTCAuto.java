@@ -2,49 +2,73 @@ package org.firstinspires.ftc.teamcode.auto;
 
 import com.qualcomm.robotcore.eventloop.opmode.LinearOpMode;
 import com.qualcomm.robotcore.hardware.DcMotor;
-import com.qualcomm.robotcore.util.ElapsedTime;
 
 import org.firstinspires.ftc.ftcdevcommon.AutonomousRobotException;
+import org.firstinspires.ftc.ftcdevcommon.ControlLoop;
 import org.firstinspires.ftc.ftcdevcommon.RobotLogCommon;
-import org.firstinspires.ftc.ftcdevcommon.RobotXMLElement;
-import org.firstinspires.ftc.ftcdevcommon.XPathAccess;
+import org.firstinspires.ftc.ftcdevcommon.Threading;
+import org.firstinspires.ftc.ftcdevcommon.android.TimeStamp;
 import org.firstinspires.ftc.ftcdevcommon.android.WorkingDirectory;
 import org.firstinspires.ftc.teamcode.ProgrammingBoardHardware;
+import org.firstinspires.ftc.teamcode.auto.vision.RingDetector;
+import org.firstinspires.ftc.teamcode.auto.vision.TargetZoneVoter;
+import org.firstinspires.ftc.teamcode.auto.vision.VisionParameters;
+import org.firstinspires.ftc.teamcode.auto.vision.WebcamFrameSource;
+import org.firstinspires.ftc.teamcode.auto.xml.RingParametersXML;
+import org.firstinspires.ftc.teamcode.common.ActionContext;
+import org.firstinspires.ftc.teamcode.common.ActionRunner;
 import org.firstinspires.ftc.teamcode.common.RobotActionXML;
 import org.firstinspires.ftc.teamcode.common.RobotConstants;
 import org.firstinspires.ftc.teamcode.common.RobotConstantsUltimateGoal;
+import org.firstinspires.ftc.teamcode.common.RobotWarmup;
 import org.xml.sax.SAXException;
 
 import java.io.IOException;
-import java.util.List;
+import java.util.Date;
+import java.util.concurrent.CompletableFuture;
 import java.util.logging.Level;
 
 import javax.xml.parsers.ParserConfigurationException;
 import javax.xml.xpath.XPathException;
 
-import static android.os.SystemClock.sleep;
-
 public class FTCAuto {
 
     private static final String TAG = "FTCAuto";
+    private static final int TARGET_ZONE_VOTES = 15; // about half a second of frames
 
     private final RobotConstantsUltimateGoal.OpMode autoOpMode;
     private final RobotConstants.Alliance alliance;
     private final LinearOpMode linearOpMode;
     private final ProgrammingBoardHardware robot;
+    private final ActionContext actionContext;
     private final String workingDirectory;
     private final RobotActionXML.RobotActionData actionData; // for the selected OpMode
 
-    //    Rev HD Hex Motor 40:1 RPM 150, clicks per revolution 1120
-    private static final double CLICKS_PER_MOTOR_REV = 1120;
-    private static final double MOTOR_RPM = 150;
-    private static final double MAX_VELOCITY = Math.floor((CLICKS_PER_MOTOR_REV * MOTOR_RPM) / 60); // clicks per second
-    private static final double WHEEL_DIAMETER_IN = 4.0;
-    private static final double CLICKS_PER_INCH = CLICKS_PER_MOTOR_REV / (WHEEL_DIAMETER_IN * 3.1416);
-
-    // Main class for the autonomous run.
+    private final ActionRunner actionRunner;
+
+    // Only for an OpMode with OCV_CHOICE: the target zone is recognized
+    // during INIT, see TargetZoneVoter.
+    private final WebcamFrameSource webcam;
+    private final TargetZoneVoter targetZoneVoter;
+    private final CompletableFuture<RobotConstantsUltimateGoal.TargetZone> targetZoneFuture;
+    private RobotConstantsUltimateGoal.TargetZone targetZone = RobotConstantsUltimateGoal.TargetZone.TARGET_ZONE_NPOS;
+    private boolean closed;
+
+    // Main class for the autonomous run. The constructor may open the
+    // webcam during INIT, so the caller must call close() in a finally
+    // block whether or not runRobot() is ever reached, e.g. when the
+    // OpMode is stopped before the start:
+    //   FTCAuto runAuto = null;
+    //   try {
+    //       runAuto = new FTCAuto(opMode, alliance, linearOpMode);
+    //       linearOpMode.waitForStart();
+    //       runAuto.runRobot();
+    //   } finally {
+    //       if (runAuto != null)
+    //           runAuto.close();
+    //   }
     public FTCAuto(RobotConstantsUltimateGoal.OpMode pAutoOpMode, RobotConstants.Alliance pAlliance, LinearOpMode pLinearOpMode)
-            throws ParserConfigurationException, SAXException, XPathException, IOException {
+            throws ParserConfigurationException, SAXException, XPathException, IOException, InterruptedException {
 
         RobotLogCommon.c(TAG, "FTCAuto constructor");
 
@@ -58,49 +82,94 @@ public class FTCAuto {
         // Get the directory for the various configuration files.
         String xmlDirectory = workingDirectory + RobotConstants.xmlDir;
 
-        // Read the robot action file for all opmodes. Extract data from
-        // the parsed XML file for the selected OpMode only.
-        RobotActionXML actionXML = new RobotActionXML(xmlDirectory);
-        actionData = actionXML.getOpModeData(autoOpMode.toString());
+        // Get the compiled data for the selected OpMode from the robot
+        // action file. Normally this was prepared when the robot controller
+        // started; see RobotWarmup. Nothing from the XML is needed after this.
+        actionData = RobotWarmup.getOpModeData(xmlDirectory, autoOpMode.toString());
 
         Level lowestLoggingLevel = actionData.lowestLoggingLevel;
         if (lowestLoggingLevel != null) // null means use the default
             RobotLogCommon.setMinimimLoggingLevel(lowestLoggingLevel);
         RobotLogCommon.c(TAG, "Lowest logging level " + RobotLogCommon.getMinimumLoggingLevel());
 
+        RobotLogCommon.clearTagLimits(); // don't carry limits over from the previous OpMode
+        for (RobotLogCommon.TagLimit logLimit : actionData.logLimits) {
+            RobotLogCommon.setTagLimit(logLimit);
+            RobotLogCommon.c(TAG, "Log limit for " + logLimit.tag + ": level " + logLimit.level +
+                    ", per second " + logLimit.perSecond + ", burst " + logLimit.burst +
+                    ", sample every " + logLimit.sampleEvery);
+        }
+
         // Initialize the hardware and methods the control motion.
         linearOpMode = pLinearOpMode;
         robot = new ProgrammingBoardHardware(linearOpMode.hardwareMap);
+        actionContext = new ActionContext(linearOpMode, robot);
+        actionRunner = new ActionRunner(actionContext, new ActionRunner.RealTimeLoop(
+                new ControlLoop(RobotConstants.CONTROL_LOOP_HZ), linearOpMode::opModeIsActive));
 
         // NOTE: the order of these two operations is important. If they
         // are reversed, the robot does not move.
         robot.leftFrontMotor.setMode(DcMotor.RunMode.STOP_AND_RESET_ENCODER);
         robot.leftFrontMotor.setMode(DcMotor.RunMode.RUN_USING_ENCODER);
 
+        // Look up now whatever the actions need from the robot.
+        actionRunner.prepare(actionData);
+
+        // Start recognizing the target zone now so that the answer is
+        // ready at the start of the match.
+        if (actionData.targetZoneActions != null) {
+            RingParametersXML.RingParameters ringParameters = RingParametersXML.parse(xmlDirectory);
+            VisionParameters.FTCRect imageROI = actionData.imageROI;
+            if (imageROI.width != 0 && imageROI.height != 0) {
+                ringParameters = ringParameters.forImageROI(imageROI); // the pixel counts go with the ROI
+                RobotLogCommon.d(TAG, "Ring pixel counts for the OpMode's image ROI: one " +
+                        ringParameters.oneRingMinPixels + ", four " + ringParameters.fourRingMinPixels);
+            }
+
+            webcam = new WebcamFrameSource(linearOpMode.hardwareMap, ringParameters.webcamName, ringParameters.imageROI);
+            try {
+                RingDetector ringDetector = new RingDetector(ringParameters.hsvParameters,
+                        ringParameters.oneRingMinPixels, ringParameters.fourRingMinPixels);
+                targetZoneVoter = new TargetZoneVoter(webcam.framePool, ringDetector, TARGET_ZONE_VOTES);
+                targetZoneFuture = Threading.launchAsync(targetZoneVoter);
+            } catch (RuntimeException ex) {
+                webcam.close(); // the caller never gets an FTCAuto to close()
+                throw ex;
+            }
+        } else {
+            webcam = null;
+            targetZoneVoter = null;
+            targetZoneFuture = null;
+        }
+
         RobotLogCommon.c(TAG, "FTCAuto construction complete");
     }
 
-    public void runRobot() throws XPathException, InterruptedException, IOException {
+    public void runRobot() throws InterruptedException, IOException {
 
         RobotLogCommon.i(TAG, "At start");
         RobotLogCommon.i(TAG, "OpMode: " + autoOpMode + ", Alliance: " + alliance);
 
-        // Safety check against ftc runtime initialization errors.
-        // Make sure the opmode is still active.
-        if (!linearOpMode.opModeIsActive())
-            throw new AutonomousRobotException(TAG, "OpMode unexpectedly inactive in runRobot()");
+        // The vote on the target zone has been running since INIT; take
+        // its answer as it stands.
+        if (targetZoneVoter != null) {
+            targetZone = getSettledZone();
+            targetZoneVoter.stopThread();
+            RobotLogCommon.i(TAG, "Target zone " + targetZone);
+        }
 
         // Follow the choreography specified in the robot action file.
-        List<RobotXMLElement> actions = actionData.actions;
         try {
-            for (RobotXMLElement action : actions) {
+            // Safety check against ftc runtime initialization errors.
+            // Make sure the opmode is still active.
+            if (!linearOpMode.opModeIsActive())
+                throw new AutonomousRobotException(TAG, "OpMode unexpectedly inactive in runRobot()");
 
-                if (!linearOpMode.opModeIsActive())
-                    return; // better to just bail out
-
-                doCommand(action); // no, but doCommand may change that
-            }
+            actionRunner.run(actionData, targetZone);
         } finally {
+            RobotLogCommon.d(TAG, "Actuator outputs: " + robot.outputs);
+            reportTimings();
+            close();
             RobotLogCommon.i(TAG, "Exiting FTCAuto");
             linearOpMode.telemetry.addData("FTCAuto", "COMPLETE");
             linearOpMode.telemetry.update();
@@ -110,70 +179,53 @@ public class FTCAuto {
     //===============================================================================================
     //===============================================================================================
 
-    // Using the XML elements and attributes from the configuration file RobotAction.xml,
-    // execute the action.
-    private void doCommand(RobotXMLElement pAction) throws XPathException {
-
-        // Set up XPath access to the current action command.
-        XPathAccess commandXPath = new XPathAccess(pAction);
-        String commandName = pAction.getRobotXMLElementName().toUpperCase();
-        RobotLogCommon.d(TAG, "Executing FTCAuto command " + commandName);
-
-        switch (commandName) {
-
-            case "FORWARD_BY_TIME": {
-                ElapsedTime runtime = new ElapsedTime();
-                try {
-                    linearOpMode.telemetry.clear();
-                    runtime.reset();
-                    robot.leftFrontMotor.setPower(0.5);
-                    while (linearOpMode.opModeIsActive() && (runtime.seconds() < 3.0)) {
-                        // Robot moves
-                        linearOpMode.telemetry.addData("Driving", "Left front forward");
-                        linearOpMode.telemetry.update();
-                    }
-                } finally {
-                    robot.leftFrontMotor.setPower(0.0);
-                }
-                break;
-            }
+    // The thread of the TargetZoneVoter runs until it is stopped, so if it
+    // is already done it has failed and its settled zone can't be trusted;
+    // run the TARGET_ZONE_NPOS branch, if any, instead.
+    private RobotConstantsUltimateGoal.TargetZone getSettledZone() throws InterruptedException {
+        if (!targetZoneFuture.isDone())
+            return targetZoneVoter.getSettledZone();
 
-            case "REVERSE_BY_TIME": {
-                ElapsedTime runtime = new ElapsedTime();
-                try {
-                    linearOpMode.telemetry.clear();
-                    runtime.reset();
-                    robot.leftFrontMotor.setPower(-0.5);
-                    while (linearOpMode.opModeIsActive() && (runtime.seconds() < 3.0)) {
-                        // Robot moves
-                        linearOpMode.telemetry.addData("Driving", "Left front in reverse");
-                        linearOpMode.telemetry.update();
-                    }
-                } finally {
-                    robot.leftFrontMotor.setPower(0.0);
-                }
-                break;
-            }
+        try {
+            Threading.getFutureCompletion(targetZoneFuture);
+            RobotLogCommon.e(TAG, "Target zone recognition stopped before the start of the match");
+        } catch (IOException | RuntimeException ex) {
+            RobotLogCommon.e(TAG, "Target zone recognition failed: " + ex);
+        }
+        return RobotConstantsUltimateGoal.TargetZone.TARGET_ZONE_NPOS;
+    }
 
-            case "SLEEP": { //I want sleep :)
-                int sleepValue = commandXPath.getInt("ms");
-                RobotLogCommon.d(TAG, "Pause by " + sleepValue + " milliseconds");
-                sleep(sleepValue);
-                break;
-            }
+    // Stops the TargetZoneVoter, waits for its thread to see the stop
+    // request and closes the webcam. May be called more than once. Called
+    // from finally blocks, so an exception in the thread is only logged;
+    // it must not take the place of an exception from the run itself.
+    public void close() throws InterruptedException {
+        if (targetZoneVoter == null || closed)
+            return;
 
-            case "BREAKPOINT": {
-                while (!linearOpMode.gamepad1.a) {
-                    sleep(1);
-                }
-                break;
-            }
+        closed = true;
+        targetZoneVoter.stopThread();
+        try {
+            Threading.getFutureCompletion(targetZoneFuture);
+        } catch (IOException | RuntimeException ex) {
+            RobotLogCommon.e(TAG, "Target zone recognition failed: " + ex);
+        } finally {
+            webcam.close();
+        }
+    }
 
-            default: {
-                throw new AutonomousRobotException(TAG, "No support for the command " + commandName);
-            }
+    // Write the timings of the actions to the log and to a CSV file in the
+    // log directory. Failing to write the file doesn't fail the run.
+    private void reportTimings() {
+        actionContext.timings.logSummary();
+        String csvFilePath = workingDirectory + RobotConstants.logDir +
+                "ActionTimings_" + TimeStamp.getDateTimeStamp(new Date()) + ".csv";
+        try {
+            actionContext.timings.writeCsv(csvFilePath);
+            RobotLogCommon.d(TAG, "Action timings written to " + csvFilePath);
+        } catch (IOException iox) {
+            RobotLogCommon.e(TAG, "Unable to write " + csvFilePath + ": " + iox.getMessage());
         }
     }
 
 }
-
@@ -2,9 +2,9 @@ package org.firstinspires.ftc.teamcode.auto;
 
 import com.qualcomm.robotcore.eventloop.opmode.LinearOpMode;
 import com.qualcomm.robotcore.hardware.DcMotor;
-import com.qualcomm.robotcore.util.ElapsedTime;
 
 import org.firstinspires.ftc.ftcdevcommon.AutonomousRobotException;
+import org.firstinspires.ftc.ftcdevcommon.ControlLoop;
 import org.firstinspires.ftc.ftcdevcommon.RobotLogCommon;
 import org.firstinspires.ftc.teamcode.ProgrammingBoardHardware;
 import org.firstinspires.ftc.teamcode.common.RobotConstants;
@@ -40,22 +40,22 @@ public class FTCAutoBasic {
         RobotLogCommon.c(TAG, "FTCAutoBasic construction complete");
     }
 
-    public void runRobot() {
+    public void runRobot() throws InterruptedException {
 
         RobotLogCommon.i(TAG, "At start");
         RobotLogCommon.i(TAG, "OpMode: " + autoOpMode + ", Alliance: " + alliance);
 
-        ElapsedTime runtime = new ElapsedTime();
         try {
             RobotLogCommon.d(TAG, "Driving the left front motor");
-            runtime.reset();
             robot.leftFrontMotor.setPower(0.5);
-            while (linearOpMode.opModeIsActive() && (runtime.seconds() < 3.0)) {
-                // Robot moves
-                linearOpMode.telemetry.addData("Driving", "Left front");
-                linearOpMode.telemetry.update();
-            }
-            RobotLogCommon.d(TAG, "Finished driving the left front motor");
+            ControlLoop.Stats loopStats = new ControlLoop(RobotConstants.CONTROL_LOOP_HZ).run(linearOpMode::opModeIsActive,
+                    (tick, elapsedSeconds) -> {
+                        // Robot moves
+                        linearOpMode.telemetry.addData("Driving", "Left front");
+                        linearOpMode.telemetry.update();
+                        return elapsedSeconds < 3.0;
+                    });
+            RobotLogCommon.d(TAG, "Finished driving the left front motor: " + loopStats);
         } finally {
             robot.leftFrontMotor.setPower(0.0);
             RobotLogCommon.i(TAG, "Exiting FTCAutoBasic");
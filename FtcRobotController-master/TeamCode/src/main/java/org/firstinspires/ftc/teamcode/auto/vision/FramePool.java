@@ -0,0 +1,123 @@
+package org.firstinspires.ftc.teamcode.auto.vision;
+
+import org.firstinspires.ftc.ftcdevcommon.AutonomousRobotException;
+
+// A fixed set of reusable frames, all allocated up front, between one
+// producer (e.g. the camera callback in WebcamFrameSource) and any number
+// of consumers. The producer fills a free frame and publishes it as the
+// latest; a consumer borrows the latest frame, reads its pixels in place
+// and releases it. No pixels are copied and nothing is allocated per
+// frame. Frames that no consumer gets to are simply reused.
+//
+// With one consumer three frames are enough: one being written, the
+// latest and the one borrowed. If no frame is free the new frame is
+// dropped.
+public class FramePool {
+
+    private static final String TAG = "FramePool";
+
+    // The pixels are ARGB_8888, row by row with no padding.
+    public static class Frame {
+        public final int[] pixels;
+        public final int width;
+        public final int height;
+        public long frameNumber; // from the camera
+        public long captureNanos; // System.nanoTime() when the frame was copied
+
+        private boolean writing;
+        private int borrows;
+
+        private Frame(int pWidth, int pHeight) {
+            width = pWidth;
+            height = pHeight;
+            pixels = new int[pWidth * pHeight];
+        }
+    }
+
+    private final Frame[] frames;
+    private Frame latest;
+    private long published;
+    private long dropped;
+
+    public FramePool(int pFrameCount, int pWidth, int pHeight) {
+        if (pFrameCount < 2 || pWidth <= 0 || pHeight <= 0)
+            throw new AutonomousRobotException(TAG, "Invalid frame count or size");
+
+        frames = new Frame[pFrameCount];
+        for (int i = 0; i < pFrameCount; i++)
+            frames[i] = new Frame(pWidth, pHeight);
+    }
+
+    public int getWidth() {
+        return frames[0].width;
+    }
+
+    public int getHeight() {
+        return frames[0].height;
+    }
+
+    // For the producer. Returns null if every frame is in use, in which
+    // case the new frame should be skipped.
+    public synchronized Frame acquireForWrite() {
+        for (Frame frame : frames) {
+            if (!frame.writing && frame.borrows == 0 && frame != latest) {
+                frame.writing = true;
+                return frame;
+            }
+        }
+
+        dropped++;
+        return null;
+    }
+
+    // For the producer: the frame is complete and is now the latest.
+    public synchronized void publish(Frame pFrame) {
+        pFrame.writing = false;
+        latest = pFrame;
+        published++;
+        notifyAll();
+    }
+
+    // For the producer: the frame could not be filled.
+    public synchronized void abandon(Frame pFrame) {
+        pFrame.writing = false;
+    }
+
+    // For a consumer. Returns the latest frame, or null if there is none
+    // yet. Every frame borrowed must be released.
+    public synchronized Frame borrowLatest() {
+        if (latest != null)
+            latest.borrows++;
+        return latest;
+    }
+
+    // For a consumer. Waits up to pTimeoutMs for a frame newer than
+    // pFrameNumber and returns it, or null on timeout.
+    public synchronized Frame borrowNewer(long pFrameNumber, long pTimeoutMs) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + pTimeoutMs;
+        long remaining;
+        while (latest == null || latest.frameNumber <= pFrameNumber) {
+            remaining = deadline - System.currentTimeMillis();
+            if (remaining <= 0)
+                return null;
+            wait(remaining);
+        }
+
+        latest.borrows++;
+        return latest;
+    }
+
+    public synchronized void release(Frame pFrame) {
+        if (pFrame.borrows <= 0)
+            throw new AutonomousRobotException(TAG, "Frame released more often than borrowed");
+        pFrame.borrows--;
+    }
+
+    public synchronized long getPublishedCount() {
+        return published;
+    }
+
+    public synchronized long getDroppedCount() {
+        return dropped;
+    }
+}
@@ -0,0 +1,162 @@
+package org.firstinspires.ftc.teamcode.auto.vision;
+
+import org.firstinspires.ftc.ftcdevcommon.AutonomousRobotException;
+import org.firstinspires.ftc.ftcdevcommon.LatencyHistogram;
+import org.firstinspires.ftc.ftcdevcommon.RobotLogCommon;
+
+import java.util.Arrays;
+import java.util.Locale;
+
+// Grayscale, normalize and threshold the image ROI without OpenCV, in
+// three stages over reusable buffers:
+//   gray      - convert the ARGB pixels of the ROI to gray (the OpenCV
+//               weights for BGR2GRAY) and count them in a histogram
+//   lut       - find the median gray level from the histogram and build a
+//               256-entry table that shifts the median to the target of
+//               the GrayParameters and thresholds the result at the
+//               low_threshold
+//   threshold - apply the table to every gray pixel, giving 255 (white)
+//               or 0 (black)
+// The time of each stage is recorded in its own LatencyHistogram so that
+// the stage can be budgeted inside the control loop.
+//
+// The buffers are allocated on the first call and again only if the size
+// of the ROI changes. Not thread-safe; call from one thread.
+public class GrayThreshold {
+
+    private static final String TAG = "GrayThreshold";
+
+    public final VisionParameters.GrayParameters grayParameters;
+
+    // Per stage, in microseconds.
+    public final LatencyHistogram grayTimes = new LatencyHistogram();
+    public final LatencyHistogram lutTimes = new LatencyHistogram();
+    public final LatencyHistogram thresholdTimes = new LatencyHistogram();
+
+    private final int[] histogram = new int[256];
+    private final byte[] lut = new byte[256];
+    private byte[] gray = new byte[0];
+    private byte[] binary = new byte[0];
+    private int median;
+    private int whitePixels;
+
+    public GrayThreshold(VisionParameters.GrayParameters pGrayParameters) {
+        grayParameters = pGrayParameters;
+    }
+
+    // Returns the thresholded ROI, row by row with no padding, one byte
+    // per pixel. The array is reused and is only valid until the next call.
+    // An ROI with a width or height of 0 means the whole image.
+    public byte[] process(int[] pPixels, int pImageWidth, int pImageHeight, VisionParameters.FTCRect pROI) {
+        int roiX = pROI.x;
+        int roiY = pROI.y;
+        int roiWidth = pROI.width;
+        int roiHeight = pROI.height;
+        if (roiWidth == 0 || roiHeight == 0) {
+            roiX = 0;
+            roiY = 0;
+            roiWidth = pImageWidth;
+            roiHeight = pImageHeight;
+        }
+
+        if (pPixels.length < pImageWidth * pImageHeight || roiX < 0 || roiY < 0 || roiWidth < 0 || roiHeight < 0 ||
+                roiX + roiWidth > pImageWidth || roiY + roiHeight > pImageHeight)
+            throw new AutonomousRobotException(TAG, "Image ROI is outside of the " + pImageWidth + " x " + pImageHeight + " image");
+
+        int roiPixels = roiWidth * roiHeight;
+        if (gray.length != roiPixels) {
+            gray = new byte[roiPixels];
+            binary = new byte[roiPixels];
+        }
+
+        long startNanos = System.nanoTime();
+        grayAndHistogram(pPixels, pImageWidth, roiX, roiY, roiWidth, roiHeight);
+        long grayNanos = System.nanoTime();
+        buildLut(roiPixels);
+        long lutNanos = System.nanoTime();
+        threshold(roiPixels);
+        long thresholdNanos = System.nanoTime();
+
+        grayTimes.recordNanos(grayNanos - startNanos);
+        lutTimes.recordNanos(lutNanos - grayNanos);
+        thresholdTimes.recordNanos(thresholdNanos - lutNanos);
+        return binary;
+    }
+
+    // The median gray level of the ROI from the last call, before the shift.
+    public int getMedian() {
+        return median;
+    }
+
+    // The number of white pixels from the last call.
+    public int getWhitePixels() {
+        return whitePixels;
+    }
+
+    // One line per stage, in microseconds.
+    public void logTimings() {
+        logHistogram("gray", grayTimes);
+        logHistogram("lut", lutTimes);
+        logHistogram("threshold", thresholdTimes);
+    }
+
+    private void grayAndHistogram(int[] pPixels, int pImageWidth, int pRoiX, int pRoiY, int pRoiWidth, int pRoiHeight) {
+        Arrays.fill(histogram, 0);
+        int out = 0;
+        int in, rowEnd, argb, level;
+        for (int row = pRoiY; row < pRoiY + pRoiHeight; row++) {
+            in = row * pImageWidth + pRoiX;
+            rowEnd = in + pRoiWidth;
+            for (; in < rowEnd; in++) {
+                argb = pPixels[in];
+                // 0.299 R + 0.587 G + 0.114 B in 8-bit fixed point, rounded.
+                level = (77 * ((argb >> 16) & 0xff) + 150 * ((argb >> 8) & 0xff) + 29 * (argb & 0xff) + 128) >> 8;
+                gray[out++] = (byte) level;
+                histogram[level]++;
+            }
+        }
+    }
+
+    private void buildLut(int pRoiPixels) {
+        int half = (pRoiPixels + 1) / 2;
+        int runningCount = 0;
+        median = 0;
+        for (int level = 0; level < 256; level++) {
+            runningCount += histogram[level];
+            if (runningCount >= half) {
+                median = level;
+                break;
+            }
+        }
+
+        // Shift every level by the same amount, clipped to 0 - 255 as
+        // OpenCV convertTo does, then threshold.
+        int shift = grayParameters.target - median;
+        int shifted;
+        for (int level = 0; level < 256; level++) {
+            shifted = Math.min(255, Math.max(0, level + shift));
+            lut[level] = (shifted > grayParameters.low_threshold) ? (byte) 255 : 0; // as THRESH_BINARY
+        }
+    }
+
+    private void threshold(int pRoiPixels) {
+        int white = 0;
+        byte value;
+        for (int i = 0; i < pRoiPixels; i++) {
+            value = lut[gray[i] & 0xff];
+            binary[i] = value;
+            white += value & 1;
+        }
+        whitePixels = white;
+    }
+
+    private static void logHistogram(String pStage, LatencyHistogram pHistogram) {
+        if (pHistogram.getCount() == 0)
+            return;
+
+        RobotLogCommon.d(TAG, String.format(Locale.US,
+                "%s: count %d, p50 %d us, p95 %d us, p99 %d us, max %d us",
+                pStage, pHistogram.getCount(), pHistogram.getValueAtPercentile(50.0),
+                pHistogram.getValueAtPercentile(95.0), pHistogram.getValueAtPercentile(99.0), pHistogram.getMax()));
+    }
+}
@@ -0,0 +1,154 @@
+package org.firstinspires.ftc.teamcode.auto.vision;
+
+import org.firstinspires.ftc.ftcdevcommon.AutonomousRobotException;
+import org.firstinspires.ftc.teamcode.common.RobotConstantsUltimateGoal;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+// Recognizes the stack of rings in the image ROI without OpenCV: counts
+// the pixels whose color is in the range of the HSVParameters and maps
+// the count to a target zone - no rings is zone A, one ring is zone B and
+// four rings are zone C.
+//
+// The conversion to HSV and the thresholding are done together in one
+// pass over the ARGB pixels, with the same 8-bit scales as OpenCV: hue
+// 0 - 179, saturation and value 0 - 255. A hue_low greater than hue_high
+// is a range that wraps around 0, e.g. for red. The saturation_target and
+// value_target (OpenCV normalization) are not applied; the low thresholds
+// are compared with the raw values. The rows are divided among the
+// threads of the common ForkJoinPool.
+public class RingDetector {
+
+    private static final String TAG = "RingDetector";
+    private static final int MIN_PIXELS_PER_TASK = 16 * 1024;
+
+    public final VisionParameters.HSVParameters hsvParameters;
+    public final int oneRingMinPixels;
+    public final int fourRingMinPixels;
+
+    private final boolean[] hueInRange = new boolean[180];
+    private final int saturationLow;
+    private final int valueLow;
+
+    // A count of at least pOneRingMinPixels means one ring and at least
+    // pFourRingMinPixels four rings.
+    public RingDetector(VisionParameters.HSVParameters pHSVParameters, int pOneRingMinPixels, int pFourRingMinPixels) {
+        if (pOneRingMinPixels <= 0 || pFourRingMinPixels <= pOneRingMinPixels)
+            throw new AutonomousRobotException(TAG, "Invalid pixel counts for one and four rings");
+
+        hsvParameters = pHSVParameters;
+        oneRingMinPixels = pOneRingMinPixels;
+        fourRingMinPixels = pFourRingMinPixels;
+        saturationLow = pHSVParameters.saturation_low_threshold;
+        valueLow = pHSVParameters.value_low_threshold;
+
+        for (int hue = 0; hue < hueInRange.length; hue++) {
+            if (pHSVParameters.hue_low <= pHSVParameters.hue_high)
+                hueInRange[hue] = hue >= pHSVParameters.hue_low && hue <= pHSVParameters.hue_high;
+            else
+                hueInRange[hue] = hue >= pHSVParameters.hue_low || hue <= pHSVParameters.hue_high;
+        }
+    }
+
+    public RobotConstantsUltimateGoal.TargetZone detect(FramePool.Frame pFrame) {
+        return getTargetZone(countRingPixels(pFrame.pixels, pFrame.width, pFrame.height));
+    }
+
+    public RobotConstantsUltimateGoal.TargetZone getTargetZone(int pRingPixels) {
+        if (pRingPixels >= fourRingMinPixels)
+            return RobotConstantsUltimateGoal.TargetZone.TARGET_ZONE_C;
+        if (pRingPixels >= oneRingMinPixels)
+            return RobotConstantsUltimateGoal.TargetZone.TARGET_ZONE_B;
+        return RobotConstantsUltimateGoal.TargetZone.TARGET_ZONE_A;
+    }
+
+    // How sure getTargetZone() is of a count: the distance from the count
+    // to the nearer of the two limits, relative to that limit, from 0 on
+    // a limit to 1 at half or one and a half times the limit.
+    public double getConfidence(int pRingPixels) {
+        double fromOne = Math.abs(pRingPixels - oneRingMinPixels) / (double) oneRingMinPixels;
+        double fromFour = Math.abs(pRingPixels - fourRingMinPixels) / (double) fourRingMinPixels;
+        return Math.min(1.0, 2.0 * Math.min(fromOne, fromFour));
+    }
+
+    // The number of pixels in the HSV range in an ARGB image, row by row
+    // with no padding.
+    public int countRingPixels(int[] pPixels, int pWidth, int pHeight) {
+        if (pPixels.length < pWidth * pHeight)
+            throw new AutonomousRobotException(TAG, "Image is smaller than " + pWidth + " x " + pHeight);
+
+        int rowsPerTask = Math.max(1, MIN_PIXELS_PER_TASK / Math.max(1, pWidth));
+        if (pHeight <= rowsPerTask)
+            return countRows(pPixels, pWidth, 0, pHeight);
+        return ForkJoinPool.commonPool().invoke(new CountTask(pPixels, pWidth, 0, pHeight, rowsPerTask));
+    }
+
+    private class CountTask extends RecursiveTask<Integer> {
+        private final int[] pixels;
+        private final int width;
+        private final int rowStart;
+        private final int rowEnd;
+        private final int rowsPerTask;
+
+        private CountTask(int[] pPixels, int pWidth, int pRowStart, int pRowEnd, int pRowsPerTask) {
+            pixels = pPixels;
+            width = pWidth;
+            rowStart = pRowStart;
+            rowEnd = pRowEnd;
+            rowsPerTask = pRowsPerTask;
+        }
+
+        @Override
+        protected Integer compute() {
+            if (rowEnd - rowStart <= rowsPerTask)
+                return countRows(pixels, width, rowStart, rowEnd);
+
+            int middle = (rowStart + rowEnd) >>> 1;
+            CountTask top = new CountTask(pixels, width, rowStart, middle, rowsPerTask);
+            top.fork();
+            int bottom = new CountTask(pixels, width, middle, rowEnd, rowsPerTask).compute();
+            return top.join() + bottom;
+        }
+    }
+
+    private int countRows(int[] pPixels, int pWidth, int pRowStart, int pRowEnd) {
+        int count = 0;
+        int end = pRowEnd * pWidth;
+        int argb, r, g, b, max, min, delta, hue;
+        for (int i = pRowStart * pWidth; i < end; i++) {
+            argb = pPixels[i];
+            r = (argb >> 16) & 0xff;
+            g = (argb >> 8) & 0xff;
+            b = argb & 0xff;
+
+            max = Math.max(r, Math.max(g, b));
+            if (max < valueLow) // value is max
+                continue;
+
+            min = Math.min(r, Math.min(g, b));
+            delta = max - min;
+            if (delta * 255 < saturationLow * max) // saturation is 255 * delta / max
+                continue;
+            if (delta == 0) // gray; no hue
+                continue;
+
+            // Hue in degrees / 2, rounded. Integer division truncates
+            // toward zero, so the numerators are kept positive: g - b may
+            // be negative, hence 180 (one turn) ahead of red.
+            if (max == r)
+                hue = (180 * delta + 30 * (g - b) + (delta >> 1)) / delta;
+            else if (max == g)
+                hue = (60 * delta + 30 * (b - r) + (delta >> 1)) / delta;
+            else
+                hue = (120 * delta + 30 * (r - g) + (delta >> 1)) / delta;
+            if (hue >= 180)
+                hue -= 180;
+
+            if (hueInRange[hue])
+                count++;
+        }
+
+        return count;
+    }
+}
@@ -0,0 +1,125 @@
+package org.firstinspires.ftc.teamcode.auto.vision;
+
+import org.firstinspires.ftc.ftcdevcommon.AutonomousRobotException;
+import org.firstinspires.ftc.ftcdevcommon.AutoWorker;
+import org.firstinspires.ftc.ftcdevcommon.LatencyHistogram;
+import org.firstinspires.ftc.ftcdevcommon.RobotLogCommon;
+import org.firstinspires.ftc.teamcode.common.RobotConstantsUltimateGoal;
+
+import java.util.Arrays;
+
+// Recognizes the target zone over and over during INIT instead of once
+// after the start of the match. Every new frame from the FramePool is
+// classified by the RingDetector and its target zone is a vote weighted
+// by the confidence of the detector. The last windowSize votes are kept
+// in a circular buffer and the zone with the most weight among them is
+// the settled zone, which is published after every frame so that
+// getSettledZone() answers at once, e.g. as soon as waitForStart()
+// returns. A single bad frame, e.g. when a hand passes in front of the
+// camera, is outvoted.
+//
+// The settled zone is TARGET_ZONE_NPOS until the first vote with any
+// weight.
+//
+//   TargetZoneVoter voter = new TargetZoneVoter(webcam.framePool, detector, 15);
+//   CompletableFuture<RobotConstantsUltimateGoal.TargetZone> future = Threading.launchAsync(voter);
+//   ... waitForStart() ...
+//   RobotConstantsUltimateGoal.TargetZone targetZone = voter.getSettledZone();
+//   voter.stopThread();
+public class TargetZoneVoter extends AutoWorker<RobotConstantsUltimateGoal.TargetZone> {
+
+    private static final String TAG = "TargetZoneVoter";
+    private static final long FRAME_TIMEOUT_MS = 100; // how often to check for a stop without frames
+
+    private static final RobotConstantsUltimateGoal.TargetZone[] ZONES = RobotConstantsUltimateGoal.TargetZone.values();
+
+    private final FramePool framePool;
+    private final RingDetector detector;
+    private final int windowSize;
+
+    // Only touched by the thread that runs call().
+    private final int[] votes; // TargetZone ordinals
+    private final double[] weights;
+    private final double[] zoneWeights = new double[ZONES.length];
+    private final LatencyHistogram detectTimes = new LatencyHistogram();
+    private int nextVote;
+    private int voteCount;
+
+    private volatile RobotConstantsUltimateGoal.TargetZone settledZone = RobotConstantsUltimateGoal.TargetZone.TARGET_ZONE_NPOS;
+
+    public TargetZoneVoter(FramePool pFramePool, RingDetector pDetector, int pWindowSize) {
+        if (pWindowSize <= 0)
+            throw new AutonomousRobotException(TAG, "Invalid window size " + pWindowSize);
+
+        framePool = pFramePool;
+        detector = pDetector;
+        windowSize = pWindowSize;
+        votes = new int[pWindowSize];
+        weights = new double[pWindowSize];
+    }
+
+    // From any thread.
+    public RobotConstantsUltimateGoal.TargetZone getSettledZone() {
+        return settledZone;
+    }
+
+    // Returns the settled zone when the thread is stopped.
+    @Override
+    public RobotConstantsUltimateGoal.TargetZone call() throws InterruptedException {
+        RobotLogCommon.d(TAG, "Voting on the target zone over " + windowSize + " frames");
+
+        long lastFrameNumber = Long.MIN_VALUE;
+        FramePool.Frame frame;
+        int ringPixels;
+        long startNanos;
+        while (!stopThreadRequested()) {
+            frame = framePool.borrowNewer(lastFrameNumber, FRAME_TIMEOUT_MS);
+            if (frame == null)
+                continue;
+
+            try {
+                startNanos = System.nanoTime();
+                ringPixels = detector.countRingPixels(frame.pixels, frame.width, frame.height);
+                detectTimes.recordNanos(System.nanoTime() - startNanos);
+                lastFrameNumber = frame.frameNumber;
+            } finally {
+                framePool.release(frame);
+            }
+
+            vote(detector.getTargetZone(ringPixels), detector.getConfidence(ringPixels));
+        }
+
+        RobotLogCommon.d(TAG, "Settled zone " + settledZone + " after " + detectTimes.getCount() +
+                " frames; detection p50 " + detectTimes.getValueAtPercentile(50.0) +
+                " us, max " + detectTimes.getMax() + " us");
+        return settledZone;
+    }
+
+    private void vote(RobotConstantsUltimateGoal.TargetZone pZone, double pWeight) {
+        votes[nextVote] = pZone.ordinal();
+        weights[nextVote] = pWeight;
+        nextVote = (nextVote + 1) % windowSize;
+        if (voteCount < windowSize)
+            voteCount++;
+
+        // Recounted from the window every time, so that no rounding error
+        // builds up; the window is small.
+        Arrays.fill(zoneWeights, 0.0);
+        for (int i = 0; i < voteCount; i++)
+            zoneWeights[votes[i]] += weights[i];
+
+        int best = -1;
+        double bestWeight = 0.0;
+        for (int i = 0; i < zoneWeights.length; i++) {
+            if (zoneWeights[i] > bestWeight) {
+                best = i;
+                bestWeight = zoneWeights[i];
+            }
+        }
+
+        if (best >= 0 && ZONES[best] != settledZone) {
+            settledZone = ZONES[best];
+            RobotLogCommon.v(TAG, "Settled zone now " + settledZone + ", weight " + bestWeight);
+        }
+    }
+}
@@ -0,0 +1,176 @@
+package org.firstinspires.ftc.teamcode.auto.vision;
+
+import android.graphics.Bitmap;
+import android.graphics.ImageFormat;
+import android.os.Handler;
+
+import androidx.annotation.NonNull;
+
+import com.qualcomm.robotcore.hardware.HardwareMap;
+
+import org.firstinspires.ftc.ftcdevcommon.AutonomousRobotException;
+import org.firstinspires.ftc.ftcdevcommon.RobotLogCommon;
+import org.firstinspires.ftc.robotcore.external.ClassFactory;
+import org.firstinspires.ftc.robotcore.external.android.util.Size;
+import org.firstinspires.ftc.robotcore.external.function.Continuation;
+import org.firstinspires.ftc.robotcore.external.hardware.camera.Camera;
+import org.firstinspires.ftc.robotcore.external.hardware.camera.CameraCaptureRequest;
+import org.firstinspires.ftc.robotcore.external.hardware.camera.CameraCaptureSequenceId;
+import org.firstinspires.ftc.robotcore.external.hardware.camera.CameraCaptureSession;
+import org.firstinspires.ftc.robotcore.external.hardware.camera.CameraCharacteristics;
+import org.firstinspires.ftc.robotcore.external.hardware.camera.CameraException;
+import org.firstinspires.ftc.robotcore.external.hardware.camera.CameraFrame;
+import org.firstinspires.ftc.robotcore.external.hardware.camera.WebcamName;
+import org.firstinspires.ftc.robotcore.internal.network.CallbackLooper;
+import org.firstinspires.ftc.robotcore.internal.system.ContinuationSynchronizer;
+import org.firstinspires.ftc.robotcore.internal.system.Deadline;
+
+import java.util.concurrent.TimeUnit;
+
+// Captures frames from a webcam into a FramePool, cropped to the image
+// ROI, e.g. for the recognition of the target zone for OCV_CHOICE.
+// Based on the ConceptWebcam sample, but where the sample allocates a new
+// Bitmap for every frame and hands it to a queue, here the frame is
+// copied into the same Bitmap every time and the ROI is copied from there
+// straight into a free frame of the pool with Bitmap.getPixels(), so that
+// capture allocates nothing once it has started. The camera only gives
+// access to its frame during the callback, so one copy is unavoidable.
+//
+//   WebcamFrameSource webcam = new WebcamFrameSource(hardwareMap, "Webcam 1", actionData.imageROI);
+//   FramePool.Frame frame = webcam.framePool.borrowLatest();
+//   ... read frame.pixels ...
+//   webcam.framePool.release(frame);
+//   webcam.close();
+public class WebcamFrameSource {
+
+    private static final String TAG = "WebcamFrameSource";
+    private static final int FRAME_POOL_SIZE = 3; // see FramePool
+    private static final int PERMISSION_TIMEOUT_SECONDS = 10;
+
+    public final FramePool framePool;
+
+    private final Camera camera;
+    private final CameraCaptureSession cameraCaptureSession;
+    private final int roiX;
+    private final int roiY;
+
+    // An ROI with a width or height of 0 means the whole image.
+    public WebcamFrameSource(HardwareMap pHardwareMap, String pWebcamName, VisionParameters.FTCRect pImageROI) throws InterruptedException {
+        WebcamName webcamName = pHardwareMap.get(WebcamName.class, pWebcamName);
+
+        // YUY2 is supported by all webcams; see ConceptWebcam.
+        final int imageFormat = ImageFormat.YUY2;
+        CameraCharacteristics cameraCharacteristics = webcamName.getCameraCharacteristics();
+        if (!contains(cameraCharacteristics.getAndroidFormats(), imageFormat))
+            throw new AutonomousRobotException(TAG, "Webcam image format YUY2 not supported");
+        final Size size = cameraCharacteristics.getDefaultSize(imageFormat);
+        final int fps = cameraCharacteristics.getMaxFramesPerSecond(imageFormat, size);
+
+        if (pImageROI.width == 0 || pImageROI.height == 0) {
+            roiX = 0;
+            roiY = 0;
+            framePool = new FramePool(FRAME_POOL_SIZE, size.getWidth(), size.getHeight());
+        } else {
+            if (pImageROI.x < 0 || pImageROI.y < 0 || pImageROI.width < 0 || pImageROI.height < 0 ||
+                    pImageROI.x + pImageROI.width > size.getWidth() || pImageROI.y + pImageROI.height > size.getHeight())
+                throw new AutonomousRobotException(TAG, "Image ROI is outside of the " +
+                        size.getWidth() + " x " + size.getHeight() + " image");
+            roiX = pImageROI.x;
+            roiY = pImageROI.y;
+            framePool = new FramePool(FRAME_POOL_SIZE, pImageROI.width, pImageROI.height);
+        }
+
+        Deadline deadline = new Deadline(PERMISSION_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        camera = ClassFactory.getInstance().getCameraManager().requestPermissionAndOpenCamera(deadline, webcamName, null);
+        if (camera == null)
+            throw new AutonomousRobotException(TAG, "Webcam " + pWebcamName + " not found or permission not granted");
+
+        CameraCaptureSession session = null;
+        try {
+            session = startCapture(imageFormat, size, fps);
+        } finally {
+            if (session == null)
+                camera.close();
+        }
+        cameraCaptureSession = session;
+
+        RobotLogCommon.d(TAG, "Capturing " + size.getWidth() + " x " + size.getHeight() + " at " + fps +
+                " fps into frames of " + framePool.getWidth() + " x " + framePool.getHeight());
+    }
+
+    public void close() {
+        cameraCaptureSession.stopCapture();
+        cameraCaptureSession.close();
+        camera.close();
+        RobotLogCommon.d(TAG, "Frames published " + framePool.getPublishedCount() +
+                ", dropped " + framePool.getDroppedCount());
+    }
+
+    private CameraCaptureSession startCapture(final int pImageFormat, final Size pSize, final int pFps) throws InterruptedException {
+        Handler callbackHandler = CallbackLooper.getDefault().getHandler();
+        final ContinuationSynchronizer<CameraCaptureSession> synchronizer = new ContinuationSynchronizer<>();
+        try {
+            camera.createCaptureSession(Continuation.create(callbackHandler, new CameraCaptureSession.StateCallbackDefault() {
+                @Override
+                public void onConfigured(@NonNull CameraCaptureSession pSession) {
+                    try {
+                        final CameraCaptureRequest captureRequest = camera.createCaptureRequest(pImageFormat, pSize, pFps);
+                        final Bitmap cameraBitmap = captureRequest.createEmptyBitmap(); // reused for every frame
+                        pSession.startCapture(captureRequest, new CameraCaptureSession.CaptureCallback() {
+                            @Override
+                            public void onNewFrame(@NonNull CameraCaptureSession pCaptureSession, @NonNull CameraCaptureRequest pRequest, @NonNull CameraFrame pCameraFrame) {
+                                copyFrame(pCameraFrame, cameraBitmap);
+                            }
+                        }, Continuation.create(callbackHandler, new CameraCaptureSession.StatusCallback() {
+                            @Override
+                            public void onCaptureSequenceCompleted(@NonNull CameraCaptureSession pCaptureSession,
+                                                                   CameraCaptureSequenceId pSequenceId, long pLastFrameNumber) {
+                                RobotLogCommon.d(TAG, "Capture sequence completed, last frame " + pLastFrameNumber);
+                            }
+                        }));
+                        synchronizer.finish(pSession);
+                    } catch (CameraException | RuntimeException ex) {
+                        RobotLogCommon.e(TAG, "Exception starting capture: " + ex.getMessage());
+                        pSession.close();
+                        synchronizer.finish(null);
+                    }
+                }
+            }));
+        } catch (CameraException | RuntimeException ex) {
+            RobotLogCommon.e(TAG, "Exception starting camera: " + ex.getMessage());
+            synchronizer.finish(null);
+        }
+
+        synchronizer.await();
+        CameraCaptureSession session = synchronizer.getValue();
+        if (session == null)
+            throw new AutonomousRobotException(TAG, "Unable to start webcam capture");
+        return session;
+    }
+
+    // On the camera's callback thread.
+    private void copyFrame(CameraFrame pCameraFrame, Bitmap pCameraBitmap) {
+        FramePool.Frame frame = framePool.acquireForWrite();
+        if (frame == null)
+            return; // all frames in use; skip this one
+
+        try {
+            pCameraFrame.copyToBitmap(pCameraBitmap);
+            pCameraBitmap.getPixels(frame.pixels, 0, frame.width, roiX, roiY, frame.width, frame.height);
+            frame.frameNumber = pCameraFrame.getFrameNumber();
+            frame.captureNanos = System.nanoTime();
+            framePool.publish(frame);
+        } catch (RuntimeException ex) {
+            framePool.abandon(frame);
+            throw ex;
+        }
+    }
+
+    private static boolean contains(int[] pArray, int pValue) {
+        for (int i : pArray) {
+            if (i == pValue)
+                return true;
+        }
+        return false;
+    }
+}
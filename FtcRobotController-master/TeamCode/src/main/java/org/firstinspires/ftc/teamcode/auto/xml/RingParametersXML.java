@@ -0,0 +1,123 @@
+package org.firstinspires.ftc.teamcode.auto.xml;
+
+import org.firstinspires.ftc.ftcdevcommon.AutonomousRobotException;
+import org.firstinspires.ftc.ftcdevcommon.RobotLogCommon;
+import org.firstinspires.ftc.teamcode.auto.vision.VisionParameters;
+import org.w3c.dom.Document;
+import org.w3c.dom.Node;
+import org.xml.sax.SAXException;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.parsers.ParserConfigurationException;
+
+// The parameters for the recognition of the ring stack for OCV_CHOICE
+// from RingParameters.xml.
+/*
+<ring_parameters>
+    <webcam>Webcam 1</webcam>
+    <image_roi>
+        <x></x>
+        <y></y>
+        <width></width>
+        <height></height>
+    </image_roi>
+    <hsv_parameters>
+        ...
+    </hsv_parameters>
+    <one_ring_min_pixels></one_ring_min_pixels>
+    <four_ring_min_pixels></four_ring_min_pixels>
+</ring_parameters>
+*/
+// The pixel counts are for the area of the image_roi here, so it may not
+// be empty. An image_roi in the parameters of the OpMode in RobotAction.xml
+// takes the place of the one here; see RingParameters.forImageROI().
+public class RingParametersXML {
+
+    public static final String TAG = "RingParametersXML";
+    public static final String FILE_NAME = "RingParameters.xml";
+
+    public static class RingParameters {
+        public final String webcamName;
+        public final VisionParameters.FTCRect imageROI;
+        public final VisionParameters.HSVParameters hsvParameters;
+        public final int oneRingMinPixels;
+        public final int fourRingMinPixels;
+
+        public RingParameters(String pWebcamName, VisionParameters.FTCRect pImageROI,
+                              VisionParameters.HSVParameters pHSVParameters,
+                              int pOneRingMinPixels, int pFourRingMinPixels) {
+            webcamName = pWebcamName;
+            imageROI = pImageROI;
+            hsvParameters = pHSVParameters;
+            oneRingMinPixels = pOneRingMinPixels;
+            fourRingMinPixels = pFourRingMinPixels;
+        }
+
+        // The same parameters for another ROI, with the pixel counts
+        // scaled by the ratio of its area to the area of imageROI.
+        public RingParameters forImageROI(VisionParameters.FTCRect pImageROI) {
+            if (pImageROI.width == imageROI.width && pImageROI.height == imageROI.height)
+                return new RingParameters(webcamName, pImageROI, hsvParameters, oneRingMinPixels, fourRingMinPixels);
+
+            double areaRatio = ((double) pImageROI.width * pImageROI.height) / ((double) imageROI.width * imageROI.height);
+            return new RingParameters(webcamName, pImageROI, hsvParameters,
+                    (int) Math.max(1, Math.round(oneRingMinPixels * areaRatio)),
+                    (int) Math.max(1, Math.round(fourRingMinPixels * areaRatio)));
+        }
+    }
+
+    public static RingParameters parse(String pXMLDirectory) throws ParserConfigurationException, SAXException, IOException {
+        String ringFilename = pXMLDirectory + FILE_NAME;
+        File ringFile = new File(ringFilename);
+        if (!ringFile.isFile())
+            throw new FileNotFoundException(ringFilename + " (No such file)");
+
+        RobotLogCommon.c(TAG, "Parsing " + ringFilename);
+        Document document = DocumentBuilderFactory.newInstance().newDocumentBuilder().parse(ringFile);
+        Node ringNode = document.getDocumentElement();
+        if (!ringNode.getNodeName().equals("ring_parameters"))
+            throw new AutonomousRobotException(TAG, "Missing <ring_parameters> element");
+
+        Node webcamNode = ImageXML.getNextElement(ringNode.getFirstChild());
+        if ((webcamNode == null) || !webcamNode.getNodeName().equals("webcam") || webcamNode.getTextContent().trim().isEmpty())
+            throw new AutonomousRobotException(TAG, "Element 'webcam' missing or empty");
+        String webcamName = webcamNode.getTextContent().trim();
+
+        Node roiNode = ImageXML.getNextElement(webcamNode.getNextSibling());
+        if ((roiNode == null) || !roiNode.getNodeName().equals("image_roi"))
+            throw new AutonomousRobotException(TAG, "Element 'image_roi' not found");
+        VisionParameters.FTCRect imageROI = ImageXML.parseROI(roiNode);
+        if (imageROI.width <= 0 || imageROI.height <= 0)
+            throw new AutonomousRobotException(TAG, "Element 'image_roi' must not be empty");
+
+        Node hsvNode = ImageXML.getNextElement(roiNode.getNextSibling());
+        if ((hsvNode == null) || !hsvNode.getNodeName().equals("hsv_parameters"))
+            throw new AutonomousRobotException(TAG, "Element 'hsv_parameters' not found");
+        VisionParameters.HSVParameters hsvParameters = new ImageXML().parseHSVParameters(hsvNode);
+
+        Node oneRingNode = ImageXML.getNextElement(hsvNode.getNextSibling());
+        int oneRingMinPixels = parseInt(oneRingNode, "one_ring_min_pixels");
+        Node fourRingNode = ImageXML.getNextElement(oneRingNode.getNextSibling());
+        int fourRingMinPixels = parseInt(fourRingNode, "four_ring_min_pixels");
+
+        if (ImageXML.getNextElement(fourRingNode.getNextSibling()) != null)
+            throw new AutonomousRobotException(TAG, "Unrecognized element under <ring_parameters>");
+
+        return new RingParameters(webcamName, imageROI, hsvParameters, oneRingMinPixels, fourRingMinPixels);
+    }
+
+    private static int parseInt(Node pNode, String pElementName) {
+        if ((pNode == null) || !pNode.getNodeName().equals(pElementName) || pNode.getTextContent().trim().isEmpty())
+            throw new AutonomousRobotException(TAG, "Element '" + pElementName + "' missing or empty");
+
+        try {
+            return Integer.parseInt(pNode.getTextContent().trim());
+        } catch (NumberFormatException nex) {
+            throw new AutonomousRobotException(TAG, "Invalid number format in element '" + pElementName + "'");
+        }
+    }
+}
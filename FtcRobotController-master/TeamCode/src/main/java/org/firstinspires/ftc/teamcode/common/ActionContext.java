@@ -0,0 +1,41 @@
+package org.firstinspires.ftc.teamcode.common;
+
+import com.qualcomm.robotcore.eventloop.opmode.LinearOpMode;
+
+import org.firstinspires.ftc.teamcode.ProgrammingBoardHardware;
+
+// What an AutoAction has access to while it runs.
+// Off the robot, e.g. in a SimulatedRun, there is no OpMode: linearOpMode
+// is null, telemetry goes nowhere and no gamepad button is ever pressed.
+// Actions should use the methods here instead of linearOpMode directly.
+public class ActionContext {
+
+    public final LinearOpMode linearOpMode; // null off the robot
+    public final ProgrammingBoardHardware robot;
+    public final AsyncActionRunner asyncActions = new AsyncActionRunner();
+    public final ActionTimings timings = new ActionTimings();
+
+    public ActionContext(LinearOpMode pLinearOpMode, ProgrammingBoardHardware pRobot) {
+        linearOpMode = pLinearOpMode;
+        robot = pRobot;
+    }
+
+    public void clearTelemetry() {
+        if (linearOpMode != null)
+            linearOpMode.telemetry.clear();
+    }
+
+    public void addTelemetry(String pCaption, Object pValue) {
+        if (linearOpMode != null)
+            linearOpMode.telemetry.addData(pCaption, pValue);
+    }
+
+    public void updateTelemetry() {
+        if (linearOpMode != null)
+            linearOpMode.telemetry.update();
+    }
+
+    public boolean isGamepad1APressed() {
+        return linearOpMode != null && linearOpMode.gamepad1.a;
+    }
+}
@@ -0,0 +1,135 @@
+package org.firstinspires.ftc.teamcode.common;
+
+import org.firstinspires.ftc.ftcdevcommon.AutonomousRobotException;
+import org.firstinspires.ftc.ftcdevcommon.RobotXMLElement;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+import org.w3c.dom.NodeList;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import javax.xml.xpath.XPathExpressionException;
+
+// Actions that run at the same time, e.g. lowering the wobble goal arm
+// while driving.
+//   <PARALLEL>
+//     <FORWARD_BY_TIME>...</FORWARD_BY_TIME>
+//     <WOBBLE_SERVO>...</WOBBLE_SERVO>
+//   </PARALLEL>
+// PARALLEL is complete when all of its actions are complete; RACE is
+// complete as soon as any one of its actions is complete, at which point
+// the others are stopped. Groups may be nested but may not contain
+// OCV_CHOICE or ASYNC.
+//
+// All of the actions are started together and are ticked in document
+// order on the same thread by the same ControlLoop, so they never touch
+// the hardware at the same time and a stop request ends all of them
+// within one tick. Each action is stopped as soon as it is complete.
+public class ActionGroup extends AutoAction {
+
+    private static final String TAG = "ActionGroup";
+
+    public final boolean race;
+    public final AutoAction[] actions;
+
+    private final boolean[] running; // reset in start()
+
+    public ActionGroup(boolean pRace, AutoAction[] pActions) {
+        super(pRace ? "RACE" : "PARALLEL");
+        race = pRace;
+        actions = pActions;
+        running = new boolean[pActions.length];
+    }
+
+    @Override
+    public void prepare(ActionContext pContext) {
+        for (AutoAction action : actions)
+            action.prepare(pContext);
+    }
+
+    @Override
+    public void start(ActionContext pContext) throws InterruptedException {
+        Arrays.fill(running, false);
+        for (int i = 0; i < actions.length; i++) {
+            running[i] = true; // so that stop() is called even if start() fails
+            actions[i].start(pContext);
+        }
+    }
+
+    @Override
+    public boolean tick(ActionContext pContext, double pElapsedSeconds) throws InterruptedException {
+        boolean anyRunning = false;
+        for (int i = 0; i < actions.length; i++) {
+            if (!running[i])
+                continue;
+
+            if (actions[i].tick(pContext, pElapsedSeconds)) {
+                anyRunning = true;
+                continue;
+            }
+
+            running[i] = false;
+            actions[i].stop(pContext);
+            if (race)
+                return false; // stop() stops the rest
+        }
+
+        return anyRunning;
+    }
+
+    @Override
+    public void stop(ActionContext pContext) {
+        for (int i = 0; i < actions.length; i++) {
+            if (running[i]) {
+                running[i] = false;
+                actions[i].stop(pContext);
+            }
+        }
+    }
+
+    @Override
+    public void writeParameters(DataOutputStream pOut) throws IOException {
+        RobotActionCache.putActions(pOut, actions);
+    }
+
+    public static class Handler implements ActionHandler {
+        private final boolean race;
+
+        public Handler(boolean pRace) {
+            race = pRace;
+        }
+
+        @Override
+        public AutoAction compile(RobotXMLElement pElement) throws XPathExpressionException {
+            List<AutoAction> groupActions = new ArrayList<>();
+            NodeList children = pElement.getRobotXMLElement().getChildNodes();
+            Node child;
+            for (int i = 0; i < children.getLength(); i++) {
+                child = children.item(i);
+                if (child.getNodeType() != Node.ELEMENT_NODE)
+                    continue;
+
+                if (child.getNodeName().equals("OCV_CHOICE") || child.getNodeName().equals("ASYNC"))
+                    throw new AutonomousRobotException(TAG, child.getNodeName() + " is not allowed under a " +
+                            pElement.getRobotXMLElementName() + " element");
+
+                groupActions.add(ActionRegistry.compile(new RobotXMLElement((Element) child)));
+            }
+
+            if (groupActions.isEmpty())
+                throw new AutonomousRobotException(TAG, "Empty " + pElement.getRobotXMLElementName() + " element");
+
+            return new ActionGroup(race, groupActions.toArray(new AutoAction[0]));
+        }
+
+        @Override
+        public AutoAction read(ByteBuffer pBuffer) {
+            return new ActionGroup(race, RobotActionCache.getActions(pBuffer));
+        }
+    }
+}
@@ -0,0 +1,22 @@
+package org.firstinspires.ftc.teamcode.common;
+
+import org.firstinspires.ftc.ftcdevcommon.RobotXMLElement;
+
+import java.nio.ByteBuffer;
+
+import javax.xml.xpath.XPathExpressionException;
+
+// Turns one kind of element under <actions> in RobotAction.xml into an
+// AutoAction. Each handler is registered in ActionRegistry under the name
+// of its element. The handler is looked up once, when the OpMode is
+// compiled; after that, running an action is a virtual call on the
+// AutoAction itself.
+public interface ActionHandler {
+
+    // Parse and validate the element during INIT.
+    AutoAction compile(RobotXMLElement pElement) throws XPathExpressionException;
+
+    // Rebuild the action from the bytes written by its writeParameters()
+    // method; see RobotActionCache.
+    AutoAction read(ByteBuffer pBuffer);
+}
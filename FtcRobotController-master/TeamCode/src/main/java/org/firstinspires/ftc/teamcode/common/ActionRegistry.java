@@ -0,0 +1,62 @@
+package org.firstinspires.ftc.teamcode.common;
+
+import org.firstinspires.ftc.ftcdevcommon.AutonomousRobotException;
+import org.firstinspires.ftc.ftcdevcommon.RobotXMLElement;
+
+import java.util.Locale;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.xml.xpath.XPathExpressionException;
+
+// Maps the name of each element that may appear under <actions> in
+// RobotAction.xml to the ActionHandler that compiles it. To add a command,
+// write an AutoAction and its ActionHandler and register the handler here;
+// neither RobotActionXML nor FTCAuto needs to change.
+public class ActionRegistry {
+
+    private static final String TAG = "ActionRegistry";
+
+    // The warm-up thread and the OpMode thread may both compile actions.
+    private static final ConcurrentHashMap<String, ActionHandler> handlers = new ConcurrentHashMap<>();
+
+    static {
+        register("FORWARD_BY_TIME", new AutoAction.ForwardByTime.Handler());
+        register("FORWARD_BY_DISTANCE", new AutoAction.ForwardByDistance.Handler());
+        register("REVERSE_BY_TIME", new AutoAction.ReverseByTime.Handler());
+        register("SLEEP", new AutoAction.Sleep.Handler());
+        register("BREAKPOINT", new AutoAction.Breakpoint.Handler());
+        register("OCV_CHOICE", new AutoAction.OcvChoice.Handler());
+        register("PARALLEL", new ActionGroup.Handler(false));
+        register("RACE", new ActionGroup.Handler(true));
+        register("ASYNC", new AsyncAction.Handler());
+        register("WAIT_FOR", new AsyncAction.WaitFor.Handler());
+
+        // Team-defined commands.
+        register(WobbleServoAction.COMMAND, new WobbleServoAction.Handler());
+    }
+
+    // Element names are not case-sensitive.
+    public static void register(String pElementName, ActionHandler pHandler) {
+        if (handlers.putIfAbsent(pElementName.toUpperCase(Locale.ROOT), pHandler) != null)
+            throw new AutonomousRobotException(TAG, "Duplicate handler for the command " + pElementName);
+    }
+
+    // Parse and validate one action element, e.g.
+    //   <SLEEP>
+    //     <ms>1000</ms>
+    //   </SLEEP>
+    // with the handler registered for its name.
+    public static AutoAction compile(RobotXMLElement pActionElement) throws XPathExpressionException {
+        String actionName = pActionElement.getRobotXMLElementName().toUpperCase(Locale.ROOT);
+        ActionHandler handler = handlers.get(actionName);
+        if (handler == null)
+            throw new AutonomousRobotException(TAG, "No support for the command " + actionName);
+
+        return handler.compile(pActionElement);
+    }
+
+    // Returns null if there is no handler for the element.
+    public static ActionHandler getHandler(String pElementName) {
+        return handlers.get(pElementName.toUpperCase(Locale.ROOT));
+    }
+}
@@ -0,0 +1,193 @@
+package org.firstinspires.ftc.teamcode.common;
+
+import org.firstinspires.ftc.ftcdevcommon.ControlLoop;
+import org.firstinspires.ftc.ftcdevcommon.LatencyHistogram;
+import org.firstinspires.ftc.ftcdevcommon.RobotLogCommon;
+import org.firstinspires.ftc.ftcdevcommon.Threading;
+import org.firstinspires.ftc.teamcode.ProgrammingBoardHardware;
+
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.BooleanSupplier;
+import java.util.function.Supplier;
+
+// Runs the compiled actions of an OpMode from RobotAction.xml, for FTCAuto
+// on the robot and for SimulatedRun off the robot; only the Loop that
+// paces the ticks differs. Every tick of an action goes
+//   robot.refresh(), tick of the action, tick of the ASYNC actions,
+//   robot.outputs.flush()
+// and the first tick of an action is at an elapsed time of 0, right after
+// its start(). At OCV_CHOICE the actions for the target zone are run in its
+// place. The timings of the actions are recorded by command in the
+// ActionTimings of the ActionContext.
+public class ActionRunner {
+
+    private static final String TAG = "ActionRunner";
+
+    // Paces the ticks of the actions.
+    public interface Loop {
+        // False when the run must stop, e.g. when the OpMode is stopped.
+        boolean isActive();
+
+        // Calls pCallback once per period, the first time at an elapsed
+        // time of 0, until it returns false or isActive() does. Records
+        // the actual periods in pPeriods if it is not null. Returns a
+        // summary of the loop for the log, formatted only if it is logged.
+        Supplier<String> run(ControlLoop.TickCallback pCallback, LatencyHistogram pPeriods) throws InterruptedException;
+    }
+
+    // On the robot: a ControlLoop in real time.
+    public static class RealTimeLoop implements Loop {
+        private final ControlLoop controlLoop;
+        private final BooleanSupplier active;
+
+        public RealTimeLoop(ControlLoop pControlLoop, BooleanSupplier pActive) {
+            controlLoop = pControlLoop;
+            active = pActive;
+        }
+
+        @Override
+        public boolean isActive() {
+            return active.getAsBoolean();
+        }
+
+        @Override
+        public Supplier<String> run(ControlLoop.TickCallback pCallback, LatencyHistogram pPeriods) throws InterruptedException {
+            return controlLoop.run(active, pCallback, pPeriods)::toString;
+        }
+    }
+
+    private final ActionContext actionContext;
+    private final ProgrammingBoardHardware robot;
+    private final Loop loop;
+
+    public ActionRunner(ActionContext pActionContext, Loop pLoop) {
+        actionContext = pActionContext;
+        robot = pActionContext.robot;
+        loop = pLoop;
+    }
+
+    // Calls prepare() on every action of the OpMode, including those of
+    // every OCV_CHOICE branch; call once during INIT, before run().
+    public void prepare(RobotActionXML.RobotActionData pActionData) {
+        prepare(pActionData.actions);
+        if (pActionData.targetZoneActions != null)
+            for (AutoAction[] branch : pActionData.targetZoneActions.values())
+                prepare(branch);
+    }
+
+    private void prepare(AutoAction[] pActions) {
+        for (AutoAction action : pActions)
+            action.prepare(actionContext);
+    }
+
+    // Runs the actions in order and then lets the ASYNC actions that are
+    // still running finish; the exception of any that failed is rethrown.
+    // The ASYNC actions are always stopped on the way out. Returns false
+    // if the run was stopped first.
+    public boolean run(RobotActionXML.RobotActionData pActionData,
+                       RobotConstantsUltimateGoal.TargetZone pTargetZone) throws InterruptedException, IOException {
+        try {
+            if (!runActions(pActionData.actions, pActionData, pTargetZone))
+                return false;
+
+            finishAsyncActions();
+            return loop.isActive();
+        } finally {
+            actionContext.asyncActions.stopAll(actionContext);
+            robot.outputs.flush();
+        }
+    }
+
+    private boolean runActions(AutoAction[] pActions, RobotActionXML.RobotActionData pActionData,
+                               RobotConstantsUltimateGoal.TargetZone pTargetZone) throws InterruptedException {
+        long scheduledStartNanos = System.nanoTime();
+        for (AutoAction action : pActions) {
+
+            if (!loop.isActive())
+                return false;
+
+            if (action instanceof AutoAction.OcvChoice) {
+                if (!runActions(getTargetZoneBranch(pActionData, pTargetZone), pActionData, pTargetZone))
+                    return false;
+            } else
+                doCommand(action, scheduledStartNanos);
+            scheduledStartNanos = System.nanoTime(); // the next action is due now
+        }
+        return true;
+    }
+
+    private static AutoAction[] getTargetZoneBranch(RobotActionXML.RobotActionData pActionData,
+                                                    RobotConstantsUltimateGoal.TargetZone pTargetZone) {
+        if (pTargetZone == RobotConstantsUltimateGoal.TargetZone.TARGET_ZONE_NPOS &&
+                !pActionData.targetZoneActions.containsKey(RobotConstantsUltimateGoal.TargetZone.TARGET_ZONE_NPOS))
+            RobotLogCommon.e(TAG, "No target zone recognized and no TARGET_ZONE_NPOS default; skipping OCV_CHOICE");
+        else
+            RobotLogCommon.d(TAG, () -> "OCV_CHOICE for " + pTargetZone);
+        return pActionData.getTargetZoneBranch(pTargetZone);
+    }
+
+    // Execute one action. An ASYNC action is only launched; ASYNC actions
+    // that have been launched are ticked along with the action in the
+    // foreground.
+    private void doCommand(final AutoAction pAction, long pScheduledStartNanos) throws InterruptedException {
+
+        // Suppliers, so that the messages are only built if they are logged.
+        RobotLogCommon.d(TAG, () -> "Executing command " + pAction.command);
+        ActionTimings.CommandTimings timings = actionContext.timings.get(pAction.command);
+
+        if (pAction instanceof AsyncAction) {
+            AsyncAction asyncAction = (AsyncAction) pAction;
+            RobotLogCommon.d(TAG, () -> "Launching " + asyncAction.action.command + " as ASYNC " + asyncAction.id);
+            robot.refresh();
+            actionContext.timings.get(asyncAction.action.command).startLatency
+                    .recordNanos(System.nanoTime() - pScheduledStartNanos);
+            try {
+                actionContext.asyncActions.launch(actionContext, asyncAction);
+            } finally {
+                robot.outputs.flush();
+            }
+            return;
+        }
+
+        Supplier<String> loopSummary;
+        long startNanos = System.nanoTime();
+        timings.startLatency.recordNanos(startNanos - pScheduledStartNanos);
+        try {
+            robot.refresh();
+            pAction.start(actionContext);
+            robot.outputs.flush();
+            loopSummary = loop.run((tick, elapsedSeconds) -> {
+                robot.refresh(); // all actions read the sensors from the same snapshot
+                boolean running = pAction.tick(actionContext, elapsedSeconds);
+                actionContext.asyncActions.tick(actionContext);
+                robot.outputs.flush(); // everything commanded during the tick
+                return running;
+            }, timings.loopPeriod);
+        } finally {
+            pAction.stop(actionContext);
+            robot.outputs.flush();
+            timings.duration.recordNanos(System.nanoTime() - startNanos);
+        }
+
+        final Supplier<String> summary = loopSummary;
+        RobotLogCommon.d(TAG, () -> pAction.command + " control loop: " + summary.get());
+    }
+
+    private void finishAsyncActions() throws InterruptedException, IOException {
+        if (actionContext.asyncActions.isRunning()) {
+            RobotLogCommon.d(TAG, "Waiting for ASYNC actions");
+            loop.run((tick, elapsedSeconds) -> {
+                robot.refresh();
+                boolean running = actionContext.asyncActions.tick(actionContext);
+                robot.outputs.flush();
+                return running;
+            }, null);
+        }
+
+        for (CompletableFuture<Void> asyncFuture : actionContext.asyncActions.getFutures()) {
+            if (asyncFuture.isDone())
+                Threading.getFutureCompletion(asyncFuture);
+        }
+    }
+}
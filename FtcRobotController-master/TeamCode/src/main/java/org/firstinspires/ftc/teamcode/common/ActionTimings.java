@@ -0,0 +1,93 @@
+package org.firstinspires.ftc.teamcode.common;
+
+import org.firstinspires.ftc.ftcdevcommon.LatencyHistogram;
+import org.firstinspires.ftc.ftcdevcommon.RobotLogCommon;
+
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+
+// Where the time of an autonomous run goes, by command, e.g. SLEEP:
+//   start latency - from when the action was due to start, i.e. when the
+//                   action before it finished, to its start()
+//   duration      - from start() to the end of stop()
+//   loop period   - the actual time between the ticks of the control loop
+//                   while the action ran (not recorded for ASYNC actions,
+//                   which share the loop of the action in the foreground)
+// Each is a fixed-size LatencyHistogram, so recording never allocates
+// once a command has been seen.
+public class ActionTimings {
+
+    private static final String TAG = "ActionTimings";
+
+    private final LinkedHashMap<String, CommandTimings> timings = new LinkedHashMap<>();
+
+    public static class CommandTimings {
+        public final String command;
+        public final LatencyHistogram startLatency = new LatencyHistogram();
+        public final LatencyHistogram duration = new LatencyHistogram();
+        public final LatencyHistogram loopPeriod = new LatencyHistogram();
+
+        private CommandTimings(String pCommand) {
+            command = pCommand;
+        }
+    }
+
+    public CommandTimings get(String pCommand) {
+        CommandTimings commandTimings = timings.get(pCommand);
+        if (commandTimings == null) {
+            commandTimings = new CommandTimings(pCommand);
+            timings.put(pCommand, commandTimings);
+        }
+        return commandTimings;
+    }
+
+    // One line per command and histogram, in milliseconds.
+    public void logSummary() {
+        for (CommandTimings commandTimings : timings.values()) {
+            logHistogram(commandTimings.command, "start latency", commandTimings.startLatency);
+            logHistogram(commandTimings.command, "duration", commandTimings.duration);
+            logHistogram(commandTimings.command, "loop period", commandTimings.loopPeriod);
+        }
+    }
+
+    // The same summary as a CSV file.
+    public void writeCsv(String pFilePath) throws IOException {
+        try (PrintWriter csv = new PrintWriter(new FileWriter(pFilePath))) {
+            csv.println("command,metric,count,p50_ms,p95_ms,p99_ms,max_ms,mean_ms");
+            for (CommandTimings commandTimings : timings.values()) {
+                writeHistogram(csv, commandTimings.command, "start_latency", commandTimings.startLatency);
+                writeHistogram(csv, commandTimings.command, "duration", commandTimings.duration);
+                writeHistogram(csv, commandTimings.command, "loop_period", commandTimings.loopPeriod);
+            }
+        }
+    }
+
+    private static void logHistogram(String pCommand, String pMetric, LatencyHistogram pHistogram) {
+        if (pHistogram.getCount() == 0)
+            return;
+
+        RobotLogCommon.i(TAG, String.format(Locale.US,
+                "%s %s: count %d, p50 %.3f ms, p95 %.3f ms, p99 %.3f ms, max %.3f ms",
+                pCommand, pMetric, pHistogram.getCount(),
+                toMs(pHistogram.getValueAtPercentile(50.0)), toMs(pHistogram.getValueAtPercentile(95.0)),
+                toMs(pHistogram.getValueAtPercentile(99.0)), toMs(pHistogram.getMax())));
+    }
+
+    private static void writeHistogram(PrintWriter pCsv, String pCommand, String pMetric, LatencyHistogram pHistogram) {
+        if (pHistogram.getCount() == 0)
+            return;
+
+        pCsv.println(String.format(Locale.US, "%s,%s,%d,%.3f,%.3f,%.3f,%.3f,%.3f",
+                pCommand, pMetric, pHistogram.getCount(),
+                toMs(pHistogram.getValueAtPercentile(50.0)), toMs(pHistogram.getValueAtPercentile(95.0)),
+                toMs(pHistogram.getValueAtPercentile(99.0)), toMs(pHistogram.getMax()),
+                pHistogram.getMean() / 1000.0));
+    }
+
+    private static double toMs(long pMicros) {
+        return pMicros / 1000.0;
+    }
+}
@@ -0,0 +1,149 @@
+package org.firstinspires.ftc.teamcode.common;
+
+import org.firstinspires.ftc.ftcdevcommon.AutonomousRobotException;
+import org.firstinspires.ftc.ftcdevcommon.RobotXMLElement;
+import org.firstinspires.ftc.ftcdevcommon.Threading;
+import org.firstinspires.ftc.ftcdevcommon.XPathAccess;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+import org.w3c.dom.NodeList;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.concurrent.CompletableFuture;
+
+import javax.xml.xpath.XPathExpressionException;
+
+// An action that runs in the background while the actions after it in
+// the sequence continue, e.g. raising an arm while driving to the next
+// position.
+//   <ASYNC id="arm">
+//     <WOBBLE_SERVO>...</WOBBLE_SERVO>
+//   </ASYNC>
+//   ...
+//   <WAIT_FOR ref="arm"/>
+// Launching the action returns a CompletableFuture; see AsyncActionRunner.
+// ASYNC may only appear directly in a sequence of actions, not in a group.
+// RobotActionXML checks that every id is unique and that every WAIT_FOR
+// refers to an ASYNC action earlier in the sequence.
+public class AsyncAction extends AutoAction {
+
+    private static final String TAG = "AsyncAction";
+
+    public final String id;
+    public final AutoAction action;
+
+    public AsyncAction(String pId, AutoAction pAction) {
+        super("ASYNC");
+        id = pId;
+        action = pAction;
+    }
+
+    // ActionRunner hands an AsyncAction to the AsyncActionRunner instead of
+    // running it. Run any other way, it is just its action.
+    @Override
+    public void prepare(ActionContext pContext) {
+        action.prepare(pContext);
+    }
+
+    @Override
+    public void start(ActionContext pContext) throws InterruptedException {
+        action.start(pContext);
+    }
+
+    @Override
+    public boolean tick(ActionContext pContext, double pElapsedSeconds) throws InterruptedException {
+        return action.tick(pContext, pElapsedSeconds);
+    }
+
+    @Override
+    public void stop(ActionContext pContext) {
+        action.stop(pContext);
+    }
+
+    @Override
+    public void writeParameters(DataOutputStream pOut) throws IOException {
+        RobotActionCache.putString(pOut, id);
+        RobotActionCache.putActions(pOut, new AutoAction[]{action});
+    }
+
+    public static class Handler implements ActionHandler {
+        @Override
+        public AutoAction compile(RobotXMLElement pElement) throws XPathExpressionException {
+            String id = new XPathAccess(pElement).getString("@id", true);
+
+            AutoAction asyncAction = null;
+            NodeList children = pElement.getRobotXMLElement().getChildNodes();
+            Node child;
+            for (int i = 0; i < children.getLength(); i++) {
+                child = children.item(i);
+                if (child.getNodeType() != Node.ELEMENT_NODE)
+                    continue;
+
+                if (asyncAction != null)
+                    throw new AutonomousRobotException(TAG, "ASYNC " + id + " must contain exactly one action");
+                if (child.getNodeName().equals("OCV_CHOICE") || child.getNodeName().equals("ASYNC"))
+                    throw new AutonomousRobotException(TAG, child.getNodeName() + " is not allowed under an ASYNC element");
+
+                asyncAction = ActionRegistry.compile(new RobotXMLElement((Element) child));
+            }
+
+            if (asyncAction == null)
+                throw new AutonomousRobotException(TAG, "ASYNC " + id + " must contain exactly one action");
+
+            return new AsyncAction(id, asyncAction);
+        }
+
+        @Override
+        public AutoAction read(ByteBuffer pBuffer) {
+            String id = RobotActionCache.getString(pBuffer);
+            return new AsyncAction(id, RobotActionCache.getActions(pBuffer)[0]);
+        }
+    }
+
+    // <WAIT_FOR ref="arm"/> waits until the ASYNC action with the id "arm"
+    // is complete. If that action failed, its exception is rethrown here.
+    public static class WaitFor extends AutoAction {
+        public final String ref;
+
+        public WaitFor(String pRef) {
+            super("WAIT_FOR");
+            ref = pRef;
+        }
+
+        @Override
+        public boolean tick(ActionContext pContext, double pElapsedSeconds) throws InterruptedException {
+            CompletableFuture<Void> asyncFuture = pContext.asyncActions.getFuture(ref);
+            if (asyncFuture == null)
+                throw new AutonomousRobotException(TAG, "WAIT_FOR: the ASYNC action " + ref + " has not been launched");
+
+            if (!asyncFuture.isDone())
+                return true;
+
+            try {
+                Threading.getFutureCompletion(asyncFuture);
+            } catch (IOException iox) {
+                throw new AutonomousRobotException(TAG, "ASYNC " + ref + " failed: " + iox.getMessage());
+            }
+            return false;
+        }
+
+        @Override
+        public void writeParameters(DataOutputStream pOut) throws IOException {
+            RobotActionCache.putString(pOut, ref);
+        }
+
+        public static class Handler implements ActionHandler {
+            @Override
+            public AutoAction compile(RobotXMLElement pElement) throws XPathExpressionException {
+                return new WaitFor(new XPathAccess(pElement).getString("@ref", true));
+            }
+
+            @Override
+            public AutoAction read(ByteBuffer pBuffer) {
+                return new WaitFor(RobotActionCache.getString(pBuffer));
+            }
+        }
+    }
+}
@@ -0,0 +1,107 @@
+package org.firstinspires.ftc.teamcode.common;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+// Runs the ASYNC actions of an OpMode. Each one is ticked on the same
+// thread and by the same ControlLoop as the action in the foreground, so
+// the OpMode thread stays free to update telemetry and to see a stop
+// request, and the hardware is only ever touched by one thread.
+// The elapsed time of an ASYNC action is measured on the clock of the
+// sensor values, so ProgrammingBoardHardware.refresh() must be called
+// before launch() and tick().
+// An ASYNC action that throws an exception is stopped and its future
+// completes exceptionally; the exception is rethrown by the WAIT_FOR for
+// the action or, if there is none, by ActionRunner at the end of the run.
+public class AsyncActionRunner {
+
+    private final HashMap<String, CompletableFuture<Void>> futures = new HashMap<>();
+    private final List<Launched> running = new ArrayList<>();
+
+    private static class Launched {
+        private final AutoAction action;
+        private final long startNanos;
+        private final CompletableFuture<Void> future;
+
+        private Launched(AutoAction pAction, CompletableFuture<Void> pFuture, long pStartNanos) {
+            action = pAction;
+            future = pFuture;
+            startNanos = pStartNanos;
+        }
+    }
+
+    public CompletableFuture<Void> launch(ActionContext pContext, AsyncAction pAsyncAction) throws InterruptedException {
+        CompletableFuture<Void> future = new CompletableFuture<>();
+        futures.put(pAsyncAction.id, future);
+
+        Launched launched = new Launched(pAsyncAction.action, future, pContext.robot.sensors.nanoTime);
+        try {
+            pAsyncAction.action.start(pContext);
+            running.add(launched);
+        } catch (RuntimeException ex) {
+            finish(pContext, launched, ex);
+        }
+
+        return future;
+    }
+
+    // Returns null if no ASYNC action with the id has been launched.
+    public CompletableFuture<Void> getFuture(String pId) {
+        return futures.get(pId);
+    }
+
+    public List<CompletableFuture<Void>> getFutures() {
+        return new ArrayList<>(futures.values());
+    }
+
+    public boolean isRunning() {
+        return !running.isEmpty();
+    }
+
+    // Called on every tick of the control loop. Returns true while any
+    // ASYNC action is still running.
+    public boolean tick(ActionContext pContext) throws InterruptedException {
+        int i = 0;
+        while (i < running.size()) { // in the order of launch
+            Launched launched = running.get(i);
+            try {
+                if (launched.action.tick(pContext, (pContext.robot.sensors.nanoTime - launched.startNanos) / 1_000_000_000.0)) {
+                    i++;
+                    continue;
+                }
+
+                running.remove(i);
+                finish(pContext, launched, null);
+            } catch (RuntimeException ex) {
+                running.remove(i);
+                finish(pContext, launched, ex);
+            }
+        }
+
+        return !running.isEmpty();
+    }
+
+    // Stops anything still running, e.g. when the OpMode is stopped.
+    public void stopAll(ActionContext pContext) {
+        for (Launched launched : running) {
+            launched.action.stop(pContext);
+            launched.future.cancel(false);
+        }
+        running.clear();
+    }
+
+    private void finish(ActionContext pContext, Launched pLaunched, RuntimeException pException) {
+        try {
+            pLaunched.action.stop(pContext);
+        } finally {
+            pContext.timings.get(pLaunched.action.command).duration
+                    .recordNanos(pContext.robot.sensors.nanoTime - pLaunched.startNanos);
+            if (pException == null)
+                pLaunched.future.complete(null);
+            else
+                pLaunched.future.completeExceptionally(pException);
+        }
+    }
+}
@@ -0,0 +1,374 @@
+package org.firstinspires.ftc.teamcode.common;
+
+import org.firstinspires.ftc.ftcdevcommon.AutonomousRobotException;
+import org.firstinspires.ftc.ftcdevcommon.RobotLogCommon;
+import org.firstinspires.ftc.ftcdevcommon.RobotXMLElement;
+import org.firstinspires.ftc.ftcdevcommon.XPathAccess;
+import org.firstinspires.ftc.teamcode.ProgrammingBoardHardware;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+import javax.xml.xpath.XPathExpressionException;
+
+// Typed actions compiled from the <actions> element of RobotAction.xml
+// during INIT by the ActionHandlers in ActionRegistry. All parameters have
+// already been parsed and validated into final fields, so executing an
+// action involves no XML at all.
+//
+// An action runs on the ticks of a ControlLoop: start() once, tick() until
+// it returns false, then stop(). Actions are not immutable: many keep
+// state while they run, e.g. the starting position of ForwardByDistance.
+// The same compiled action is run again in a later OpMode (RobotWarmup
+// keeps the compiled actions), so that state must be reset in start(), and
+// anything an action looks up on the robot must be looked up again in
+// prepare(). An action must only be run by one thread at a time.
+// Use public static nested classes for "packaging convenience", as in
+// VisionParameters.
+public abstract class AutoAction {
+
+    private static final String TAG = "AutoAction";
+
+    public final String command; // the XML element, e.g. SLEEP
+
+    protected AutoAction(String pCommand) {
+        command = pCommand;
+    }
+
+    // Called for every action of the OpMode during INIT, before any action
+    // starts, e.g. to look up a device so that start() and tick() don't
+    // have to inside the timed loop.
+    public void prepare(ActionContext pContext) {
+    }
+
+    // Called once before the first tick.
+    public void start(ActionContext pContext) throws InterruptedException {
+    }
+
+    // Called on every tick of the control loop with the seconds since the
+    // action started. Returns false when the action is complete.
+    public abstract boolean tick(ActionContext pContext, double pElapsedSeconds) throws InterruptedException;
+
+    // Always called after the last tick, even if the OpMode has been
+    // stopped or an error has occurred.
+    public void stop(ActionContext pContext) {
+    }
+
+    // Writes the parameters for the handler's read() method.
+    public void writeParameters(DataOutputStream pOut) throws IOException {
+    }
+
+    //   <FORWARD_BY_TIME>
+    //     <seconds>3.0</seconds>
+    //     <velocity>0.5</velocity>
+    //   </FORWARD_BY_TIME>
+    public static class ForwardByTime extends AutoAction {
+        public final double seconds;
+        public final double velocity; // motor power, 0.0 to 1.0
+
+        public ForwardByTime(double pSeconds, double pVelocity) {
+            super("FORWARD_BY_TIME");
+            seconds = pSeconds;
+            velocity = pVelocity;
+        }
+
+        @Override
+        public void start(ActionContext pContext) {
+            pContext.clearTelemetry();
+            pContext.robot.leftFrontOutput.setPower(velocity);
+        }
+
+        @Override
+        public boolean tick(ActionContext pContext, double pElapsedSeconds) {
+            // Robot moves
+            pContext.addTelemetry("Driving", "Left front forward");
+            pContext.updateTelemetry();
+            return pElapsedSeconds < seconds;
+        }
+
+        @Override
+        public void stop(ActionContext pContext) {
+            pContext.robot.leftFrontOutput.setPower(0.0);
+        }
+
+        @Override
+        public void writeParameters(DataOutputStream pOut) throws IOException {
+            pOut.writeDouble(seconds);
+            pOut.writeDouble(velocity);
+        }
+
+        public static class Handler implements ActionHandler {
+            @Override
+            public AutoAction compile(RobotXMLElement pElement) throws XPathExpressionException {
+                XPathAccess actionXPath = new XPathAccess(pElement);
+                double seconds = actionXPath.getDouble("seconds");
+                double velocity = actionXPath.getDouble("velocity");
+                if (seconds <= 0.0 || velocity <= 0.0 || velocity > 1.0)
+                    throw new AutonomousRobotException(TAG, "Invalid seconds or velocity in FORWARD_BY_TIME");
+                return new ForwardByTime(seconds, velocity);
+            }
+
+            @Override
+            public AutoAction read(ByteBuffer pBuffer) {
+                return new ForwardByTime(pBuffer.getDouble(), pBuffer.getDouble());
+            }
+        }
+    }
+
+    //   <FORWARD_BY_DISTANCE>
+    //     <inches>24.0</inches>
+    //     <velocity>0.5</velocity>
+    //     <acceleration>24.0</acceleration> <!-- optional, inches per second per second -->
+    //   </FORWARD_BY_DISTANCE>
+    // The velocity is the cruise velocity as a fraction of the maximum. The
+    // trapezoidal profile is computed when the action is compiled; on each
+    // tick the motor is driven at the velocity from the profile plus a
+    // correction for the difference between the position from the profile
+    // and the encoder.
+    public static class ForwardByDistance extends AutoAction {
+        private static final double DEFAULT_ACCELERATION = 24.0; // inches per second per second
+        private static final double KP = 4.0; // clicks per second per click of error
+        private static final double TOLERANCE_CLICKS = 10;
+        private static final double SETTLE_SECONDS = 0.5;
+        private static final double TELEMETRY_INTERVAL = 0.25; // seconds
+
+        public final double inches;
+        public final double velocity;
+        public final double acceleration;
+        public final MotionProfile profile; // in clicks
+
+        private int startClicks; // reset in start()
+        private double nextTelemetrySeconds; // reset in start()
+
+        public ForwardByDistance(double pInches, double pVelocity, double pAcceleration) {
+            super("FORWARD_BY_DISTANCE");
+            inches = pInches;
+            velocity = pVelocity;
+            acceleration = pAcceleration;
+            profile = MotionProfile.trapezoid(pInches * ProgrammingBoardHardware.CLICKS_PER_INCH,
+                    pVelocity * ProgrammingBoardHardware.MAX_VELOCITY,
+                    pAcceleration * ProgrammingBoardHardware.CLICKS_PER_INCH,
+                    RobotConstants.CONTROL_LOOP_HZ);
+        }
+
+        @Override
+        public void start(ActionContext pContext) {
+            pContext.clearTelemetry();
+            startClicks = pContext.robot.sensors.leftFrontPosition;
+            nextTelemetrySeconds = 0.0;
+            RobotLogCommon.d(TAG, "Forward by {} inches in {} ticks", inches, profile.positions.length);
+        }
+
+        @Override
+        public boolean tick(ActionContext pContext, double pElapsedSeconds) {
+            int index = profile.getIndex(pElapsedSeconds);
+            double error = profile.positions[index] -
+                    (pContext.robot.sensors.leftFrontPosition - startClicks);
+            double power = (profile.velocities[index] + KP * error) / ProgrammingBoardHardware.MAX_VELOCITY;
+            pContext.robot.leftFrontOutput.setPower(Math.max(-1.0, Math.min(1.0, power)));
+
+            // Not on every tick; the Driver Station only shows telemetry a
+            // few times a second and boxing the error allocates.
+            if (pElapsedSeconds >= nextTelemetrySeconds) {
+                nextTelemetrySeconds = pElapsedSeconds + TELEMETRY_INTERVAL;
+                pContext.addTelemetry("Driving", "Left front forward");
+                pContext.addTelemetry("Error (clicks)", (int) Math.round(error));
+                pContext.updateTelemetry();
+            }
+
+            if (index < profile.positions.length - 1)
+                return true;
+            return Math.abs(error) > TOLERANCE_CLICKS &&
+                    pElapsedSeconds < profile.getDurationSeconds() + SETTLE_SECONDS;
+        }
+
+        @Override
+        public void stop(ActionContext pContext) {
+            pContext.robot.leftFrontOutput.setPower(0.0);
+        }
+
+        @Override
+        public void writeParameters(DataOutputStream pOut) throws IOException {
+            pOut.writeDouble(inches);
+            pOut.writeDouble(velocity);
+            pOut.writeDouble(acceleration);
+        }
+
+        public static class Handler implements ActionHandler {
+            @Override
+            public AutoAction compile(RobotXMLElement pElement) throws XPathExpressionException {
+                XPathAccess actionXPath = new XPathAccess(pElement);
+                double inches = actionXPath.getDouble("inches");
+                double velocity = actionXPath.getDouble("velocity");
+                double acceleration = actionXPath.getDouble("acceleration", DEFAULT_ACCELERATION);
+                if (inches <= 0.0 || velocity <= 0.0 || velocity > 1.0 || acceleration <= 0.0)
+                    throw new AutonomousRobotException(TAG, "Invalid inches, velocity or acceleration in FORWARD_BY_DISTANCE");
+                return new ForwardByDistance(inches, velocity, acceleration);
+            }
+
+            // The profile is recomputed, which is cheap compared to parsing.
+            @Override
+            public AutoAction read(ByteBuffer pBuffer) {
+                return new ForwardByDistance(pBuffer.getDouble(), pBuffer.getDouble(), pBuffer.getDouble());
+            }
+        }
+    }
+
+    //   <REVERSE_BY_TIME>
+    //     <seconds>3.0</seconds>
+    //     <velocity>-0.5</velocity>
+    //   </REVERSE_BY_TIME>
+    public static class ReverseByTime extends AutoAction {
+        public final double seconds;
+        public final double velocity; // motor power, -1.0 to 0.0
+
+        public ReverseByTime(double pSeconds, double pVelocity) {
+            super("REVERSE_BY_TIME");
+            seconds = pSeconds;
+            velocity = pVelocity;
+        }
+
+        @Override
+        public void start(ActionContext pContext) {
+            pContext.clearTelemetry();
+            pContext.robot.leftFrontOutput.setPower(velocity);
+        }
+
+        @Override
+        public boolean tick(ActionContext pContext, double pElapsedSeconds) {
+            // Robot moves
+            pContext.addTelemetry("Driving", "Left front in reverse");
+            pContext.updateTelemetry();
+            return pElapsedSeconds < seconds;
+        }
+
+        @Override
+        public void stop(ActionContext pContext) {
+            pContext.robot.leftFrontOutput.setPower(0.0);
+        }
+
+        @Override
+        public void writeParameters(DataOutputStream pOut) throws IOException {
+            pOut.writeDouble(seconds);
+            pOut.writeDouble(velocity);
+        }
+
+        public static class Handler implements ActionHandler {
+            @Override
+            public AutoAction compile(RobotXMLElement pElement) throws XPathExpressionException {
+                XPathAccess actionXPath = new XPathAccess(pElement);
+                double seconds = actionXPath.getDouble("seconds");
+                double velocity = actionXPath.getDouble("velocity");
+                if (seconds <= 0.0 || velocity >= 0.0 || velocity < -1.0)
+                    throw new AutonomousRobotException(TAG, "Invalid seconds or velocity in REVERSE_BY_TIME");
+                return new ReverseByTime(seconds, velocity);
+            }
+
+            @Override
+            public AutoAction read(ByteBuffer pBuffer) {
+                return new ReverseByTime(pBuffer.getDouble(), pBuffer.getDouble());
+            }
+        }
+    }
+
+    //   <SLEEP>
+    //     <ms>1000</ms>
+    //   </SLEEP>
+    public static class Sleep extends AutoAction {
+        public final int ms;
+
+        public Sleep(int pMs) {
+            super("SLEEP");
+            ms = pMs;
+        }
+
+        @Override
+        public void start(ActionContext pContext) {
+            RobotLogCommon.d(TAG, "Pause by {} milliseconds", ms);
+        }
+
+        // Sleeping on the control loop instead of in sleep() means that a
+        // stop request ends the pause within one tick.
+        @Override
+        public boolean tick(ActionContext pContext, double pElapsedSeconds) {
+            return pElapsedSeconds * 1000.0 < ms;
+        }
+
+        @Override
+        public void writeParameters(DataOutputStream pOut) throws IOException {
+            pOut.writeInt(ms);
+        }
+
+        public static class Handler implements ActionHandler {
+            @Override
+            public AutoAction compile(RobotXMLElement pElement) throws XPathExpressionException {
+                int ms = new XPathAccess(pElement).getInt("ms");
+                if (ms < 0)
+                    throw new AutonomousRobotException(TAG, "Invalid ms in SLEEP");
+                return new Sleep(ms);
+            }
+
+            @Override
+            public AutoAction read(ByteBuffer pBuffer) {
+                return new Sleep(pBuffer.getInt());
+            }
+        }
+    }
+
+    // <BREAKPOINT/> waits for gamepad1.a; off the robot it waits forever.
+    public static class Breakpoint extends AutoAction {
+        public Breakpoint() {
+            super("BREAKPOINT");
+        }
+
+        @Override
+        public boolean tick(ActionContext pContext, double pElapsedSeconds) {
+            return !pContext.isGamepad1APressed();
+        }
+
+        public static class Handler implements ActionHandler {
+            @Override
+            public AutoAction compile(RobotXMLElement pElement) {
+                return new Breakpoint();
+            }
+
+            @Override
+            public AutoAction read(ByteBuffer pBuffer) {
+                return new Breakpoint();
+            }
+        }
+    }
+
+    // The place in the sequence where the actions for the recognized
+    // target zone go; the branches themselves are in RobotActionData.
+    // The runner splices in the branch instead of running this action;
+    // see ActionRunner.runActions and getTargetZoneBranch.
+    public static class OcvChoice extends AutoAction {
+        public OcvChoice() {
+            super("OCV_CHOICE");
+        }
+
+        @Override
+        public void start(ActionContext pContext) {
+            throw new AutonomousRobotException(TAG, "OCV_CHOICE must be replaced by the actions for the target zone");
+        }
+
+        @Override
+        public boolean tick(ActionContext pContext, double pElapsedSeconds) {
+            return false;
+        }
+
+        public static class Handler implements ActionHandler {
+            @Override
+            public AutoAction compile(RobotXMLElement pElement) {
+                return new OcvChoice();
+            }
+
+            @Override
+            public AutoAction read(ByteBuffer pBuffer) {
+                return new OcvChoice();
+            }
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package org.firstinspires.ftc.teamcode.common;
+
+import org.firstinspires.ftc.ftcdevcommon.AutonomousRobotException;
+
+// A trapezoidal velocity profile sampled once per tick of the control
+// loop: accelerate at a constant rate to the cruise velocity, cruise, then
+// decelerate at the same rate to a stop at the target. If the distance is
+// too short to reach the cruise velocity the profile is a triangle.
+// The table is computed once during INIT so that following it is just an
+// array lookup per tick.
+public class MotionProfile {
+
+    private static final String TAG = "MotionProfile";
+
+    public final double hz; // samples per second
+    public final double[] positions; // distance from the start at each tick
+    public final double[] velocities; // distance per second at each tick
+
+    private MotionProfile(double pHz, double[] pPositions, double[] pVelocities) {
+        hz = pHz;
+        positions = pPositions;
+        velocities = pVelocities;
+    }
+
+    // The units of distance are up to the caller, e.g. encoder clicks,
+    // clicks per second and clicks per second per second. The last sample
+    // is always the full distance at a velocity of zero.
+    public static MotionProfile trapezoid(double pDistance, double pMaxVelocity, double pAcceleration, double pHz) {
+        if (pDistance <= 0.0 || pMaxVelocity <= 0.0 || pAcceleration <= 0.0 || pHz <= 0.0)
+            throw new AutonomousRobotException(TAG, "Invalid distance, velocity, acceleration or frequency");
+
+        double cruiseVelocity = pMaxVelocity;
+        double rampSeconds = cruiseVelocity / pAcceleration;
+        double rampDistance = 0.5 * pAcceleration * rampSeconds * rampSeconds;
+        if (2 * rampDistance > pDistance) { // triangle
+            rampSeconds = Math.sqrt(pDistance / pAcceleration);
+            rampDistance = pDistance / 2;
+            cruiseVelocity = pAcceleration * rampSeconds;
+        }
+        double cruiseSeconds = (pDistance - 2 * rampDistance) / cruiseVelocity;
+        double totalSeconds = 2 * rampSeconds + cruiseSeconds;
+
+        int lastTick = (int) Math.ceil(totalSeconds * pHz);
+        double[] positions = new double[lastTick + 1];
+        double[] velocities = new double[lastTick + 1];
+        double t;
+        for (int i = 0; i < lastTick; i++) {
+            t = i / pHz;
+            if (t < rampSeconds) {
+                velocities[i] = pAcceleration * t;
+                positions[i] = 0.5 * pAcceleration * t * t;
+            } else if (t < rampSeconds + cruiseSeconds) {
+                velocities[i] = cruiseVelocity;
+                positions[i] = rampDistance + cruiseVelocity * (t - rampSeconds);
+            } else {
+                double remaining = totalSeconds - t;
+                velocities[i] = pAcceleration * remaining;
+                positions[i] = pDistance - 0.5 * pAcceleration * remaining * remaining;
+            }
+        }
+        positions[lastTick] = pDistance;
+        velocities[lastTick] = 0.0;
+
+        return new MotionProfile(pHz, positions, velocities);
+    }
+
+    public double getDurationSeconds() {
+        return (positions.length - 1) / hz;
+    }
+
+    // The sample for the elapsed time; past the end of the profile this is
+    // the last sample.
+    public int getIndex(double pElapsedSeconds) {
+        long index = Math.round(pElapsedSeconds * hz);
+        return (int) Math.max(0, Math.min(index, positions.length - 1));
+    }
+}
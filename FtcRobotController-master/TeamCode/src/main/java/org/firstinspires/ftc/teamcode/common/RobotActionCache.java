@@ -0,0 +1,281 @@
+package org.firstinspires.ftc.teamcode.common;
+
+import org.firstinspires.ftc.ftcdevcommon.RobotLogCommon;
+import org.firstinspires.ftc.teamcode.auto.vision.VisionParameters;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.logging.Level;
+import java.util.zip.CRC32;
+
+// Binary snapshot of the compiled RobotActionData for one OpMode, kept
+// in the directory RobotActionCache under the working directory so that
+// an INIT with an unchanged RobotAction.xml does not have to parse and
+// validate the XML again. Each snapshot records the length and CRC32 of
+// the XML file it was compiled from; a snapshot that does not match the
+// current file is ignored and then overwritten. So is a snapshot whose
+// body does not match its own CRC32 or that can't be decoded for any
+// other reason; every length in it is checked against the bytes that
+// remain before anything is allocated.
+//
+// Layout (big-endian): int MAGIC, short VERSION, long XML length,
+// long XML CRC32, string OpMode, long CRC32 of the rest of the file, then
+// the fields of RobotActionData in declaration order. Strings are an int byte count followed by UTF-8;
+// enums and levels are written by name.
+//
+// Increment VERSION whenever the layout or the parameters written by any
+// AutoAction change.
+class RobotActionCache {
+
+    private static final String TAG = "RobotActionCache";
+    private static final String CACHE_DIRECTORY = "RobotActionCache";
+    private static final String FILE_EXTENSION = ".bin";
+
+    private static final int MAGIC = 0x46544341; // "FTCA"
+    private static final short VERSION = 4;
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private final File cacheDirectory;
+    private final long xmlLength;
+    private final long xmlCRC;
+
+    RobotActionCache(String pWorkingDirectory, File pXMLFile) throws IOException {
+        cacheDirectory = new File(pWorkingDirectory + CACHE_DIRECTORY);
+        xmlLength = pXMLFile.length();
+        xmlCRC = crcOf(pXMLFile);
+    }
+
+    // Returns null if there is no valid snapshot for the OpMode.
+    RobotActionXML.RobotActionData load(String pOpMode) {
+        File cacheFile = cacheFileFor(pOpMode);
+        if (!cacheFile.isFile())
+            return null;
+
+        try (FileInputStream cacheStream = new FileInputStream(cacheFile)) {
+            FileChannel channel = cacheStream.getChannel();
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (buffer.getInt() != MAGIC || buffer.getShort() != VERSION ||
+                    buffer.getLong() != xmlLength || buffer.getLong() != xmlCRC ||
+                    !getString(buffer).equals(pOpMode)) {
+                RobotLogCommon.d(TAG, "Stale cache for OpMode " + pOpMode);
+                return null;
+            }
+
+            long bodyCRC = buffer.getLong();
+            if (crcOf(buffer.slice()) != bodyCRC) {
+                RobotLogCommon.d(TAG, "Damaged cache for OpMode " + pOpMode);
+                return null;
+            }
+
+            return getActionData(buffer);
+        } catch (IOException | RuntimeException ex) {
+            // A damaged snapshot is not an error: the XML is still there.
+            RobotLogCommon.d(TAG, "Unreadable cache for OpMode " + pOpMode + ": " + ex);
+            return null;
+        }
+    }
+
+    // Failure to write the snapshot is logged but otherwise ignored.
+    void save(String pOpMode, RobotActionXML.RobotActionData pActionData) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(1024);
+        File tempFile = new File(cacheDirectory, pOpMode + ".tmp");
+        try {
+            DataOutputStream out = new DataOutputStream(bytes);
+            out.writeInt(MAGIC);
+            out.writeShort(VERSION);
+            out.writeLong(xmlLength);
+            out.writeLong(xmlCRC);
+            putString(out, pOpMode);
+
+            ByteArrayOutputStream body = new ByteArrayOutputStream(1024);
+            DataOutputStream bodyOut = new DataOutputStream(body);
+            putActionData(bodyOut, pActionData);
+            bodyOut.flush();
+            CRC32 bodyCRC = new CRC32();
+            bodyCRC.update(body.toByteArray());
+            out.writeLong(bodyCRC.getValue());
+            body.writeTo(out);
+            out.flush();
+
+            if (!cacheDirectory.isDirectory() && !cacheDirectory.mkdirs())
+                throw new IOException("Unable to create " + cacheDirectory.getPath());
+
+            // Write to a temporary file and rename it so that a reader never
+            // sees a partial snapshot.
+            try (FileOutputStream tempStream = new FileOutputStream(tempFile)) {
+                bytes.writeTo(tempStream);
+                tempStream.getFD().sync();
+            }
+
+            File cacheFile = cacheFileFor(pOpMode);
+            if (!tempFile.renameTo(cacheFile) && !(cacheFile.delete() && tempFile.renameTo(cacheFile)))
+                throw new IOException("Unable to rename " + tempFile.getPath());
+        } catch (IOException iox) {
+            RobotLogCommon.d(TAG, "Unable to save the cache for OpMode " + pOpMode + ": " + iox.getMessage());
+            //noinspection ResultOfMethodCallIgnored
+            tempFile.delete();
+        }
+    }
+
+    private File cacheFileFor(String pOpMode) {
+        return new File(cacheDirectory, pOpMode + FILE_EXTENSION);
+    }
+
+    private static long crcOf(File pFile) throws IOException {
+        CRC32 crc = new CRC32();
+        byte[] chunk = new byte[8192];
+        try (FileInputStream xmlStream = new FileInputStream(pFile)) {
+            int count;
+            while ((count = xmlStream.read(chunk)) > 0)
+                crc.update(chunk, 0, count);
+        }
+        return crc.getValue();
+    }
+
+    // CRC32.update(ByteBuffer) needs API 26.
+    private static long crcOf(ByteBuffer pBuffer) {
+        CRC32 crc = new CRC32();
+        byte[] chunk = new byte[8192];
+        int count;
+        while (pBuffer.hasRemaining()) {
+            count = Math.min(chunk.length, pBuffer.remaining());
+            pBuffer.get(chunk, 0, count);
+            crc.update(chunk, 0, count);
+        }
+        return crc.getValue();
+    }
+
+    private static void putActionData(DataOutputStream pOut, RobotActionXML.RobotActionData pActionData) throws IOException {
+        putString(pOut, pActionData.lowestLoggingLevel == null ? "" : pActionData.lowestLoggingLevel.getName());
+
+        pOut.writeInt(pActionData.logLimits.size());
+        for (RobotLogCommon.TagLimit limit : pActionData.logLimits) {
+            putString(pOut, limit.tag);
+            putString(pOut, limit.level.getName());
+            pOut.writeDouble(limit.perSecond);
+            pOut.writeInt(limit.burst);
+            pOut.writeInt(limit.sampleEvery);
+        }
+
+        pOut.writeInt(pActionData.imageROI.x);
+        pOut.writeInt(pActionData.imageROI.y);
+        pOut.writeInt(pActionData.imageROI.width);
+        pOut.writeInt(pActionData.imageROI.height);
+
+        pOut.writeInt(pActionData.vumarksOfInterest.size());
+        for (RobotConstantsUltimateGoal.SupportedVumark vumark : pActionData.vumarksOfInterest)
+            putString(pOut, vumark.name());
+
+        pOut.writeBoolean(pActionData.startingPositionData != null);
+        if (pActionData.startingPositionData != null) {
+            pOut.writeDouble(pActionData.startingPositionData.startingX);
+            pOut.writeDouble(pActionData.startingPositionData.startingY);
+            pOut.writeDouble(pActionData.startingPositionData.startingAngle);
+        }
+
+        putActions(pOut, pActionData.actions);
+
+        pOut.writeBoolean(pActionData.targetZoneActions != null);
+        if (pActionData.targetZoneActions != null) {
+            pOut.writeInt(pActionData.targetZoneActions.size());
+            for (HashMap.Entry<RobotConstantsUltimateGoal.TargetZone, AutoAction[]> zone : pActionData.targetZoneActions.entrySet()) {
+                putString(pOut, zone.getKey().name());
+                putActions(pOut, zone.getValue());
+            }
+        }
+    }
+
+    private static RobotActionXML.RobotActionData getActionData(ByteBuffer pBuffer) {
+        String levelName = getString(pBuffer);
+        Level lowestLoggingLevel = levelName.isEmpty() ? null : Level.parse(levelName);
+
+        int limitCount = getCount(pBuffer, 4);
+        List<RobotLogCommon.TagLimit> logLimits = new ArrayList<>(limitCount);
+        for (int i = 0; i < limitCount; i++)
+            logLimits.add(new RobotLogCommon.TagLimit(getString(pBuffer), Level.parse(getString(pBuffer)),
+                    pBuffer.getDouble(), pBuffer.getInt(), pBuffer.getInt()));
+
+        VisionParameters.FTCRect imageROI = new VisionParameters.FTCRect(pBuffer.getInt(), pBuffer.getInt(),
+                pBuffer.getInt(), pBuffer.getInt());
+
+        int vumarkCount = getCount(pBuffer, 4);
+        List<RobotConstantsUltimateGoal.SupportedVumark> vumarksOfInterest = new ArrayList<>(vumarkCount);
+        for (int i = 0; i < vumarkCount; i++)
+            vumarksOfInterest.add(RobotConstantsUltimateGoal.SupportedVumark.valueOf(getString(pBuffer)));
+
+        RobotActionXML.StartingPositionData startingPositionData = null;
+        if (pBuffer.get() != 0)
+            startingPositionData = new RobotActionXML.StartingPositionData(pBuffer.getDouble(),
+                    pBuffer.getDouble(), pBuffer.getDouble());
+
+        AutoAction[] actions = getActions(pBuffer);
+
+        HashMap<RobotConstantsUltimateGoal.TargetZone, AutoAction[]> targetZoneActions = null;
+        if (pBuffer.get() != 0) {
+            targetZoneActions = new HashMap<>();
+            int zoneCount = getCount(pBuffer, 8);
+            for (int i = 0; i < zoneCount; i++)
+                targetZoneActions.put(RobotConstantsUltimateGoal.TargetZone.valueOf(getString(pBuffer)),
+                        getActions(pBuffer));
+        }
+
+        return new RobotActionXML.RobotActionData(lowestLoggingLevel, logLimits, imageROI, vumarksOfInterest,
+                startingPositionData, actions, targetZoneActions);
+    }
+
+    // Each action is written as its command followed by its parameters;
+    // the handler registered for the command reads them back. Also used
+    // by ActionGroup for its members.
+    static void putActions(DataOutputStream pOut, AutoAction[] pActions) throws IOException {
+        pOut.writeInt(pActions.length);
+        for (AutoAction action : pActions) {
+            putString(pOut, action.command);
+            action.writeParameters(pOut);
+        }
+    }
+
+    static AutoAction[] getActions(ByteBuffer pBuffer) {
+        AutoAction[] actions = new AutoAction[getCount(pBuffer, 4)];
+        for (int i = 0; i < actions.length; i++) {
+            String command = getString(pBuffer);
+            ActionHandler handler = ActionRegistry.getHandler(command);
+            if (handler == null)
+                throw new IllegalArgumentException("No handler for the command " + command);
+            actions[i] = handler.read(pBuffer);
+        }
+        return actions;
+    }
+
+    static void putString(DataOutputStream pOut, String pString) throws IOException {
+        byte[] bytes = pString.getBytes(UTF_8);
+        pOut.writeInt(bytes.length);
+        pOut.write(bytes);
+    }
+
+    static String getString(ByteBuffer pBuffer) {
+        byte[] bytes = new byte[getCount(pBuffer, 1)];
+        pBuffer.get(bytes);
+        return new String(bytes, UTF_8);
+    }
+
+    // A count of elements that each take at least pMinBytesEach bytes in
+    // the snapshot, checked before anything is allocated for them.
+    static int getCount(ByteBuffer pBuffer, int pMinBytesEach) {
+        int count = pBuffer.getInt();
+        if (count < 0 || (long) count * pMinBytesEach > pBuffer.remaining())
+            throw new IllegalArgumentException("Invalid count " + count + " with " + pBuffer.remaining() + " bytes left");
+        return count;
+    }
+}
@@ -9,85 +9,89 @@ import org.w3c.dom.Document;
 import org.w3c.dom.Element;
 import org.w3c.dom.Node;
 import org.w3c.dom.NodeList;
+import org.w3c.dom.Text;
+import org.xml.sax.Attributes;
 import org.xml.sax.SAXException;
+import org.xml.sax.helpers.DefaultHandler;
 
 import java.io.File;
+import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 import java.util.logging.Level;
 
 import javax.xml.parsers.DocumentBuilder;
 import javax.xml.parsers.DocumentBuilderFactory;
 import javax.xml.parsers.ParserConfigurationException;
-import javax.xml.xpath.XPath;
-import javax.xml.xpath.XPathConstants;
+import javax.xml.parsers.SAXParserFactory;
 import javax.xml.xpath.XPathExpressionException;
-import javax.xml.xpath.XPathFactory;
 
 public class RobotActionXML {
 
     public static final String TAG = "RobotActionXML";
-    private static final String FILE_NAME = "RobotAction.xml";
+    static final String FILE_NAME = "RobotAction.xml";
 
-    private final Document document;
-    private final XPath xpath;
-
-    /*
-    // IntelliJ only
-    private static final String JAXP_SCHEMA_LANGUAGE =
-            "http://java.sun.com/xml/jaxp/properties/schemaLanguage";
-    private static final String W3C_XML_SCHEMA =
-            "http://www.w3.org/2001/XMLSchema";
-     */
+    private final String workingDirectory;
+    private final String actionFilename;
+    private final SAXParserFactory saxFactory;
+    private final DocumentBuilder dBuilder;
 
+    // RobotAction.xml is not parsed here. Instead, each call to getOpModeData
+    // streams through the file with a SAX parser and builds a DOM only for the
+    // selected OpMode; the elements of all other OpModes are skipped without
+    // being materialized and parsing stops at the end of the selected OpMode.
     public RobotActionXML(String pWorkingDirectory) throws ParserConfigurationException, SAXException, IOException {
 
-/*
-// IntelliJ only
-        DocumentBuilderFactory dbFactory = DocumentBuilderFactory.newInstance();
-        dbFactory.setIgnoringComments(true);
-        dbFactory.setNamespaceAware(true);
-        dbFactory.setValidating(true);
-        dbFactory.setAttribute(JAXP_SCHEMA_LANGUAGE, W3C_XML_SCHEMA);
-
-        //## ONLY works with a validating parser (DTD or schema),
-        // which the IntelliJ parser is.
-        dbFactory.setIgnoringElementContentWhitespace(true);
-// End IntelliJ only
-*/
-
-// Android only
-        DocumentBuilderFactory dbFactory = DocumentBuilderFactory.newInstance();
-        dbFactory.setIgnoringComments(true);
-        //## ONLY works with a validating parser (DTD or schema),
-        // which the Android Studio parser is not.
-        // dbFactory.setIgnoringElementContentWhitespace(true);
-        //PY 8/17/2019 Android throws UnsupportedOperationException dbFactory.setXIncludeAware(true);
-// End Android only
-
-        DocumentBuilder dBuilder = dbFactory.newDocumentBuilder();
-        String actionFilename = pWorkingDirectory + FILE_NAME;
-        document = dBuilder.parse(new File(actionFilename));
-
-        XPathFactory xpathFactory = XPathFactory.newInstance();
-        xpath = xpathFactory.newXPath();
+        workingDirectory = pWorkingDirectory;
+        actionFilename = pWorkingDirectory + FILE_NAME;
+        File actionFile = new File(actionFilename);
+        if (!actionFile.isFile())
+            throw new FileNotFoundException(actionFilename + " (No such file)");
+
+        // Comments never reach a SAX DefaultHandler so there is no need to
+        // ignore them explicitly. As with the DOM parser on Android, the
+        // SAX parser is not validating, so whitespace between elements is
+        // kept and skipped by getNextElement.
+        saxFactory = SAXParserFactory.newInstance();
+
+        // Only used to create the Document that holds the selected OpMode.
+        dBuilder = DocumentBuilderFactory.newInstance().newDocumentBuilder();
     }
 
     // Find the requested opMode in the RobotAction.xml file.
     // Package and return all data associated with the OpMode.
-    public RobotActionData getOpModeData(String pOpMode) throws XPathExpressionException {
+    // If the XML file has not changed since the OpMode was last compiled
+    // the data comes from the binary snapshot in RobotActionCache instead.
+    public RobotActionData getOpModeData(String pOpMode) throws ParserConfigurationException, SAXException, IOException, XPathExpressionException {
+        RobotActionCache cache = new RobotActionCache(workingDirectory, new File(actionFilename));
+        RobotActionData actionData = cache.load(pOpMode);
+        if (actionData != null) {
+            RobotLogCommon.c(TAG, "Loaded compiled data for OpMode " + pOpMode + " from the cache");
+            return actionData;
+        }
+
+        actionData = compileOpModeData(pOpMode);
+        cache.save(pOpMode, actionData);
+        return actionData;
+    }
+
+    // Parse and validate the requested OpMode in the RobotAction.xml file.
+    private RobotActionData compileOpModeData(String pOpMode) throws ParserConfigurationException, SAXException, IOException, XPathExpressionException {
 
         Level lowestLoggingLevel = null; // null means use the default lowest logging level
+        List<RobotLogCommon.TagLimit> logLimits = new ArrayList<>();
         StartingPositionData startingPositionData = null;
         VisionParameters.FTCRect imageROI = new VisionParameters.FTCRect(0, 0, 0, 0); // default is an empty ROI; use the values from RingParameters.xml.
         List<RobotConstantsUltimateGoal.SupportedVumark> vumarksOfInterest = new ArrayList<>();
-        List<RobotXMLElement> actions = new ArrayList<>();
+        List<AutoAction> actions = new ArrayList<>();
 
-        // Use XPath to locate the desired OpMode.
-        String opModePath = "/RobotAction/OpMode[@id=" + "'" + pOpMode + "']";
-        Node opModeNode = (Node) xpath.evaluate(opModePath, document, XPathConstants.NODE);
+        // Stream through the XML file to locate the desired OpMode,
+        // the equivalent of the XPath /RobotAction/OpMode[@id='pOpMode'].
+        Node opModeNode = extractOpMode(pOpMode);
         if (opModeNode == null)
             throw new AutonomousRobotException(TAG, "Missing OpMode " + pOpMode);
 
@@ -98,8 +102,9 @@ public class RobotActionXML {
         if ((parametersNode == null) || !parametersNode.getNodeName().equals("parameters"))
             throw new AutonomousRobotException(TAG, "Missing required <parameters> element");
 
-        // The four possible elements under <parameters> are:
+        // The five possible elements under <parameters> are:
         //   <lowest_logging_level>
+        //   <log_limits>
         //   <starting_position>
         //   <image_roi>
         //   <vumarks>
@@ -111,27 +116,19 @@ public class RobotActionXML {
         if ((nextParameterNode != null) && (nextParameterNode.getNodeName().equals("lowest_logging_level"))) {
             String lowestLoggingLevelString = nextParameterNode.getTextContent().trim();
             if (!lowestLoggingLevelString.isEmpty()) {
-                switch (lowestLoggingLevelString) {
-                    case "d": {
-                        lowestLoggingLevel = Level.FINE;
-                        break;
-                    }
-                    case "v": {
-                        lowestLoggingLevel = Level.FINER;
-                        break;
-                    }
-                    case "vv": {
-                        lowestLoggingLevel = Level.FINEST;
-                        break;
-                    }
-                    default: {
-                        throw new AutonomousRobotException(TAG, "Invalid lowest logging level");
-                    }
-                }
+                lowestLoggingLevel = parseLoggingLevel(lowestLoggingLevelString, false);
+                if (lowestLoggingLevel == null)
+                    throw new AutonomousRobotException(TAG, "Invalid lowest logging level");
             }
             nextParameterNode = getNextElement(nextParameterNode.getNextSibling());
         }
 
+        // The next optional element in the XML is <log_limits>.
+        if ((nextParameterNode != null) && nextParameterNode.getNodeName().equals("log_limits")) {
+            logLimits = parseLogLimits(nextParameterNode);
+            nextParameterNode = getNextElement(nextParameterNode.getNextSibling());
+        }
+
         // The next optional element in the XML is <starting_position>.
         if ((nextParameterNode != null) && nextParameterNode.getNodeName().equals("starting_position")) {
             // Get the value from each child of the starting_position element:
@@ -202,41 +199,289 @@ public class RobotActionXML {
                   throw new AutonomousRobotException(TAG, "Unrecognized element under <parameters>");
 
         // Now proceed to the <actions> element of the selected OpMode.
-        String actionsPath = opModePath + "/actions";
-        Node actionsNode = (Node) xpath.evaluate(actionsPath, document, XPathConstants.NODE);
+        Node actionsNode = getNextElement(parametersNode.getNextSibling());
+        while ((actionsNode != null) && !actionsNode.getNodeName().equals("actions"))
+            actionsNode = getNextElement(actionsNode.getNextSibling());
         if (actionsNode == null)
             throw new AutonomousRobotException(TAG, "Missing <actions> element");
 
-        // Now iterate through the children of the <actions> element of the selected OpMode.
+        // Now iterate through the children of the <actions> element of the selected OpMode
+        // and compile each one into a typed AutoAction. Any error in an action is reported
+        // here, during INIT, instead of during the autonomous run, and none of the DOM is
+        // retained.
         NodeList actionChildren = actionsNode.getChildNodes();
         Node actionNode;
 
-        RobotXMLElement actionXMLElement;
         boolean foundOcvChoice = false;
-        HashMap<RobotConstantsUltimateGoal.TargetZone, List<RobotXMLElement>> targetZoneActions = null;
+        HashMap<RobotConstantsUltimateGoal.TargetZone, AutoAction[]> targetZoneActions = null;
         for (int i = 0; i < actionChildren.getLength(); i++) {
             actionNode = actionChildren.item(i);
 
             if (actionNode.getNodeType() != Node.ELEMENT_NODE)
                 continue;
 
-            actionXMLElement = new RobotXMLElement((Element) actionNode);
-            actions.add(actionXMLElement);
+            actions.add(ActionRegistry.compile(new RobotXMLElement((Element) actionNode)));
 
             if (actionNode.getNodeName().equals("OCV_CHOICE")) {
                 if (foundOcvChoice)
                     throw new AutonomousRobotException(TAG, "Only one OCV_CHOICE element is allowed");
                 foundOcvChoice = true;
 
-                // Collect all of the RobotXMLElement(s) for each target zone.
-                // The elements will be fed into the stream of actions at run-time
+                // Compile the actions for each target zone.
+                // The actions will be fed into the stream of actions at run-time
                 // depending on the outcome of the OCV recognition
                 targetZoneActions = getTargetZoneActions(actionNode);
             }
         }
 
-        return new RobotActionData(lowestLoggingLevel, imageROI, vumarksOfInterest, startingPositionData,
-                actions, targetZoneActions);
+        AutoAction[] compiledActions = actions.toArray(new AutoAction[0]);
+        checkAsyncReferences(compiledActions, targetZoneActions);
+
+        return new RobotActionData(lowestLoggingLevel, logLimits, imageROI, vumarksOfInterest, startingPositionData,
+                compiledActions, targetZoneActions);
+    }
+
+    // Every ASYNC id must be unique and every WAIT_FOR must refer to an
+    // ASYNC action earlier in the sequence. The actions for a target zone
+    // follow the actions before OCV_CHOICE.
+    private void checkAsyncReferences(AutoAction[] pActions,
+                                      HashMap<RobotConstantsUltimateGoal.TargetZone, AutoAction[]> pTargetZoneActions) {
+        Set<String> asyncIds = new HashSet<>();
+        for (AutoAction action : pActions) {
+            if ((action instanceof AutoAction.OcvChoice) && (pTargetZoneActions != null)) {
+                for (AutoAction[] zoneActions : pTargetZoneActions.values()) {
+                    Set<String> zoneAsyncIds = new HashSet<>(asyncIds);
+                    for (AutoAction zoneAction : zoneActions)
+                        checkAsyncReferences(zoneAction, zoneAsyncIds);
+                }
+            }
+
+            checkAsyncReferences(action, asyncIds);
+        }
+    }
+
+    private void checkAsyncReferences(AutoAction pAction, Set<String> pAsyncIds) {
+        if (pAction instanceof AsyncAction) {
+            AsyncAction asyncAction = (AsyncAction) pAction;
+            checkAsyncReferences(asyncAction.action, pAsyncIds);
+            if (!pAsyncIds.add(asyncAction.id))
+                throw new AutonomousRobotException(TAG, "Duplicate ASYNC id " + asyncAction.id);
+        } else if (pAction instanceof AsyncAction.WaitFor) {
+            String ref = ((AsyncAction.WaitFor) pAction).ref;
+            if (!pAsyncIds.contains(ref))
+                throw new AutonomousRobotException(TAG, "WAIT_FOR " + ref + " does not refer to an earlier ASYNC action");
+        } else if (pAction instanceof ActionGroup) {
+            for (AutoAction groupAction : ((ActionGroup) pAction).actions)
+                checkAsyncReferences(groupAction, pAsyncIds);
+        }
+    }
+
+    // The same abbreviations as RobotLogCommon's methods; "i" is allowed
+    // only for log limits (pAllowInfo). Returns null for an unknown or
+    // disallowed abbreviation.
+    private Level parseLoggingLevel(String pLevelString, boolean pAllowInfo) {
+        switch (pLevelString) {
+            case "i":
+                return pAllowInfo ? Level.INFO : null;
+            case "d":
+                return Level.FINE;
+            case "v":
+                return Level.FINER;
+            case "vv":
+                return Level.FINEST;
+            default:
+                return null;
+        }
+    }
+
+    // Parse the children of the <log_limits> element, each of which is
+    //  <limit>
+    //    <tag>FTCAuto</tag>             <!-- or * for all tags -->
+    //    <level>d</level>               <!-- optional; limits this level and below; default d -->
+    //    <per_second>20</per_second>    <!-- optional; 0 or missing means no rate limit -->
+    //    <burst>40</burst>              <!-- optional; default is per_second -->
+    //    <sample_every>1</sample_every> <!-- optional; keep 1 in N entries; default 1 -->
+    //  </limit>
+    private List<RobotLogCommon.TagLimit> parseLogLimits(Node pLogLimitsNode) {
+        List<RobotLogCommon.TagLimit> logLimits = new ArrayList<>();
+        Node limitNode = getNextElement(pLogLimitsNode.getFirstChild());
+        while (limitNode != null) {
+            if (!limitNode.getNodeName().equals("limit"))
+                throw new AutonomousRobotException(TAG, "Unrecognized element under <log_limits>");
+
+            Node tagNode = getNextElement(limitNode.getFirstChild());
+            if ((tagNode == null) || !tagNode.getNodeName().equals("tag") || tagNode.getTextContent().trim().isEmpty())
+                throw new AutonomousRobotException(TAG, "Element 'tag' missing or empty");
+            String tag = tagNode.getTextContent().trim();
+
+            Level level = Level.FINE;
+            double perSecond = 0;
+            int burst = -1;
+            int sampleEvery = 1;
+
+            Node nextLimitNode = getNextElement(tagNode.getNextSibling());
+            if ((nextLimitNode != null) && nextLimitNode.getNodeName().equals("level")) {
+                level = parseLoggingLevel(nextLimitNode.getTextContent().trim(), true);
+                if (level == null)
+                    throw new AutonomousRobotException(TAG, "Invalid logging level in log limit for " + tag);
+                nextLimitNode = getNextElement(nextLimitNode.getNextSibling());
+            }
+
+            if ((nextLimitNode != null) && nextLimitNode.getNodeName().equals("per_second")) {
+                try {
+                    perSecond = Double.parseDouble(nextLimitNode.getTextContent().trim());
+                } catch (NumberFormatException nex) {
+                    throw new AutonomousRobotException(TAG, "Invalid number format in element 'per_second'");
+                }
+                nextLimitNode = getNextElement(nextLimitNode.getNextSibling());
+            }
+
+            if ((nextLimitNode != null) && nextLimitNode.getNodeName().equals("burst")) {
+                try {
+                    burst = Integer.parseInt(nextLimitNode.getTextContent().trim());
+                } catch (NumberFormatException nex) {
+                    throw new AutonomousRobotException(TAG, "Invalid number format in element 'burst'");
+                }
+                nextLimitNode = getNextElement(nextLimitNode.getNextSibling());
+            }
+
+            if ((nextLimitNode != null) && nextLimitNode.getNodeName().equals("sample_every")) {
+                try {
+                    sampleEvery = Integer.parseInt(nextLimitNode.getTextContent().trim());
+                } catch (NumberFormatException nex) {
+                    throw new AutonomousRobotException(TAG, "Invalid number format in element 'sample_every'");
+                }
+                nextLimitNode = getNextElement(nextLimitNode.getNextSibling());
+            }
+
+            if (nextLimitNode != null)
+                throw new AutonomousRobotException(TAG, "Unrecognized element under <limit>");
+
+            if (perSecond < 0 || sampleEvery < 1)
+                throw new AutonomousRobotException(TAG, "Invalid log limit for " + tag);
+
+            if (burst < 0)
+                burst = (int) Math.max(Math.ceil(perSecond), 1);
+
+            logLimits.add(new RobotLogCommon.TagLimit(tag, level, perSecond, burst, sampleEvery));
+            limitNode = getNextElement(limitNode.getNextSibling());
+        }
+
+        return logLimits;
+    }
+
+    // Returns the id of every /RobotAction/OpMode in the XML file, in
+    // document order, without building any DOM nodes.
+    public List<String> getOpModeIds() throws ParserConfigurationException, SAXException, IOException {
+        final List<String> opModeIds = new ArrayList<>();
+        saxFactory.newSAXParser().parse(new File(actionFilename), new DefaultHandler() {
+            private int depth;
+            private boolean rootIsRobotAction;
+
+            @Override
+            public void startElement(String pUri, String pLocalName, String pQName, Attributes pAttributes) {
+                depth++;
+                if (depth == 1)
+                    rootIsRobotAction = pQName.equals("RobotAction");
+                else if (depth == 2 && rootIsRobotAction && pQName.equals("OpMode") && pAttributes.getValue("id") != null)
+                    opModeIds.add(pAttributes.getValue("id"));
+            }
+
+            @Override
+            public void endElement(String pUri, String pLocalName, String pQName) {
+                depth--;
+            }
+        });
+
+        return opModeIds;
+    }
+
+    // Returns the <OpMode> element with the requested id as the root of a
+    // new Document or null if there is no such OpMode.
+    private Node extractOpMode(String pOpMode) throws ParserConfigurationException, SAXException, IOException {
+        OpModeExtractor extractor = new OpModeExtractor(pOpMode, dBuilder.newDocument());
+        try {
+            saxFactory.newSAXParser().parse(new File(actionFilename), extractor);
+        } catch (OpModeExtractor.OpModeComplete complete) {
+            // Normal early exit: the rest of the file is not needed.
+        }
+
+        return extractor.document.getDocumentElement();
+    }
+
+    // SAX handler that builds DOM nodes for the selected OpMode only.
+    // Everything outside of it is seen only as a stream of events.
+    private static class OpModeExtractor extends DefaultHandler {
+
+        // Thrown to stop the parser at the end of the selected OpMode.
+        private static class OpModeComplete extends SAXException {
+            private OpModeComplete() {
+                super("OpMode complete");
+            }
+        }
+
+        private final String opModeId;
+        private final Document document;
+        private int depth;
+        private boolean rootIsRobotAction;
+        private Node current; // null while outside of the selected OpMode
+
+        private OpModeExtractor(String pOpModeId, Document pDocument) {
+            opModeId = pOpModeId;
+            document = pDocument;
+        }
+
+        @Override
+        public void startElement(String pUri, String pLocalName, String pQName, Attributes pAttributes) {
+            depth++;
+            if (current == null) {
+                if (depth == 1)
+                    rootIsRobotAction = pQName.equals("RobotAction");
+                else if (depth == 2 && rootIsRobotAction && pQName.equals("OpMode") &&
+                        opModeId.equals(pAttributes.getValue("id"))) {
+                    Element opModeElement = createElement(pQName, pAttributes);
+                    document.appendChild(opModeElement);
+                    current = opModeElement;
+                }
+                return;
+            }
+
+            Element element = createElement(pQName, pAttributes);
+            current.appendChild(element);
+            current = element;
+        }
+
+        @Override
+        public void endElement(String pUri, String pLocalName, String pQName) throws SAXException {
+            depth--;
+            if (current == null)
+                return;
+
+            if (current == document.getDocumentElement())
+                throw new OpModeComplete();
+            current = current.getParentNode();
+        }
+
+        // The parser may deliver the text of an element in pieces; keep it
+        // in a single Text node so that XPath text() sees all of it.
+        @Override
+        public void characters(char[] pChars, int pStart, int pLength) {
+            if (current == null)
+                return;
+
+            Node lastChild = current.getLastChild();
+            if ((lastChild != null) && (lastChild.getNodeType() == Node.TEXT_NODE))
+                ((Text) lastChild).appendData(new String(pChars, pStart, pLength));
+            else
+                current.appendChild(document.createTextNode(new String(pChars, pStart, pLength)));
+        }
+
+        private Element createElement(String pQName, Attributes pAttributes) {
+            Element element = document.createElement(pQName);
+            for (int i = 0; i < pAttributes.getLength(); i++)
+                element.setAttribute(pAttributes.getQName(i), pAttributes.getValue(i));
+            return element;
+        }
     }
 
     private Node getNextElement(Node pNode) {
@@ -251,10 +496,13 @@ public class RobotActionXML {
     }
 
     // Get the target zone actions associated with an OpMode.
-    // The key of the return map is the target zone.
-    private HashMap<RobotConstantsUltimateGoal.TargetZone, List<RobotXMLElement>> getTargetZoneActions(Node pOcvChoiceNode) {
-        HashMap<RobotConstantsUltimateGoal.TargetZone, List<RobotXMLElement>> targetZoneActions = new HashMap<>();
-        List<RobotXMLElement> actions;
+    // The key of the return map is the target zone. A TARGET_ZONE_NPOS
+    // element is optional and declares the default branch: the actions
+    // for a target zone that has no element of its own and for a failed
+    // recognition. Without it all of the other zones are required.
+    private HashMap<RobotConstantsUltimateGoal.TargetZone, AutoAction[]> getTargetZoneActions(Node pOcvChoiceNode) throws XPathExpressionException {
+        HashMap<RobotConstantsUltimateGoal.TargetZone, AutoAction[]> targetZoneActions = new HashMap<>();
+        AutoAction[] actions;
 
         RobotLogCommon.i(TAG, "Processing xml for target zones");
 
@@ -263,33 +511,56 @@ public class RobotActionXML {
             throw new AutonomousRobotException(TAG, "Missing TARGET_ZONE elements");
 
         Node targetZoneNode;
-        int targetZoneCount = 0;
         for (int i = 0; i < ocvChoiceChildren.getLength(); i++) {
             targetZoneNode = ocvChoiceChildren.item(i);
 
             if (targetZoneNode.getNodeType() != Node.ELEMENT_NODE)
                 continue;
 
-            targetZoneCount++;
             RobotConstantsUltimateGoal.TargetZone targetZone = RobotConstantsUltimateGoal.TargetZone.valueOf(targetZoneNode.getNodeName());
+            if (targetZoneActions.containsKey(targetZone))
+                throw new AutonomousRobotException(TAG, "Duplicate " + targetZone + " element");
             actions = collectActions(targetZoneNode.getChildNodes());
             targetZoneActions.put(targetZone, actions);
         }
 
-        if (targetZoneCount != 3)
-          throw new AutonomousRobotException(TAG, "Missing one or more TARGET_ZONE elements");
+        if (!targetZoneActions.containsKey(RobotConstantsUltimateGoal.TargetZone.TARGET_ZONE_NPOS) &&
+                (targetZoneActions.size() != RobotConstantsUltimateGoal.TargetZone.values().length - 1))
+          throw new AutonomousRobotException(TAG, "Missing one or more TARGET_ZONE elements and no TARGET_ZONE_NPOS default");
 
         return targetZoneActions;
     }
 
+    // The branches of OCV_CHOICE indexed by the ordinal of the target
+    // zone, so that the branch for the result of the recognition is one
+    // array access at run-time. A zone without a branch gets the default
+    // branch TARGET_ZONE_NPOS; if there is no default TARGET_ZONE_NPOS
+    // gets no actions.
+    private static AutoAction[][] resolveTargetZoneBranches(HashMap<RobotConstantsUltimateGoal.TargetZone, AutoAction[]> pTargetZoneActions) {
+        if (pTargetZoneActions == null)
+            return null;
+
+        AutoAction[] defaultBranch = pTargetZoneActions.get(RobotConstantsUltimateGoal.TargetZone.TARGET_ZONE_NPOS);
+        if (defaultBranch == null)
+            defaultBranch = new AutoAction[0];
+
+        RobotConstantsUltimateGoal.TargetZone[] targetZones = RobotConstantsUltimateGoal.TargetZone.values();
+        AutoAction[][] branches = new AutoAction[targetZones.length][];
+        AutoAction[] branch;
+        for (RobotConstantsUltimateGoal.TargetZone targetZone : targetZones) {
+            branch = pTargetZoneActions.get(targetZone);
+            branches[targetZone.ordinal()] = (branch != null) ? branch : defaultBranch;
+        }
+        return branches;
+    }
+
     // Iterate through the children of the selected target zone node
-    // and collect the elements. Note: a TARGET_ZONE element with no
+    // and compile the elements. Note: a TARGET_ZONE element with no
     // children is valid.
-    private List<RobotXMLElement> collectActions(NodeList pNodeList) {
+    private AutoAction[] collectActions(NodeList pNodeList) throws XPathExpressionException {
 
-        List<RobotXMLElement> actions = new ArrayList<>();
+        List<AutoAction> actions = new ArrayList<>();
         Node oneActionNode;
-        RobotXMLElement actionXMLElement;
 
         for (int i = 0; i < pNodeList.getLength(); i++) {
             oneActionNode = pNodeList.item(i);
@@ -297,34 +568,50 @@ public class RobotActionXML {
             if (oneActionNode.getNodeType() != Node.ELEMENT_NODE)
                 continue;
 
-            actionXMLElement = new RobotXMLElement((Element) oneActionNode);
-            actions.add(actionXMLElement);
+            if (oneActionNode.getNodeName().equals("OCV_CHOICE"))
+                throw new AutonomousRobotException(TAG, "OCV_CHOICE is not allowed under a TARGET_ZONE element");
+
+            actions.add(ActionRegistry.compile(new RobotXMLElement((Element) oneActionNode)));
         }
 
-        return actions;
+        return actions.toArray(new AutoAction[0]);
     }
 
     public static class RobotActionData {
         public final Level lowestLoggingLevel;
+        public final List<RobotLogCommon.TagLimit> logLimits;
         public final VisionParameters.FTCRect imageROI;
         public final List<RobotConstantsUltimateGoal.SupportedVumark> vumarksOfInterest;
         public final StartingPositionData startingPositionData;
-        public final List<RobotXMLElement> actions;
-        public final HashMap<RobotConstantsUltimateGoal.TargetZone, List<RobotXMLElement>> targetZoneActions;
-
+        public final AutoAction[] actions;
+        public final HashMap<RobotConstantsUltimateGoal.TargetZone, AutoAction[]> targetZoneActions; // as declared
+        public final AutoAction[][] targetZoneBranches; // by TargetZone ordinal; null if there is no OCV_CHOICE
 
-        public RobotActionData(Level pLevel, VisionParameters.FTCRect pROI,
+        public RobotActionData(Level pLevel, List<RobotLogCommon.TagLimit> pLogLimits,
+                               VisionParameters.FTCRect pROI,
                                List<RobotConstantsUltimateGoal.SupportedVumark> pVumarks,
                                StartingPositionData pStartingPositionData,
-                               List<RobotXMLElement> pActions,
-                               HashMap<RobotConstantsUltimateGoal.TargetZone, List<RobotXMLElement>> pTargetZoneActions) {
+                               AutoAction[] pActions,
+                               HashMap<RobotConstantsUltimateGoal.TargetZone, AutoAction[]> pTargetZoneActions) {
             lowestLoggingLevel = pLevel;
+            logLimits = pLogLimits;
             imageROI = pROI;
             vumarksOfInterest = pVumarks;
             actions = pActions;
             targetZoneActions = pTargetZoneActions;
+            targetZoneBranches = resolveTargetZoneBranches(pTargetZoneActions);
             startingPositionData = pStartingPositionData;
         }
+
+        // The actions to splice in at OCV_CHOICE for the recognized zone;
+        // null for no recognition is the same as TARGET_ZONE_NPOS.
+        public AutoAction[] getTargetZoneBranch(RobotConstantsUltimateGoal.TargetZone pTargetZone) {
+            if (targetZoneBranches == null)
+                throw new AutonomousRobotException(TAG, "No OCV_CHOICE in this OpMode");
+            if (pTargetZone == null)
+                return targetZoneBranches[RobotConstantsUltimateGoal.TargetZone.TARGET_ZONE_NPOS.ordinal()];
+            return targetZoneBranches[pTargetZone.ordinal()];
+        }
     }
 
     public static class StartingPositionData {
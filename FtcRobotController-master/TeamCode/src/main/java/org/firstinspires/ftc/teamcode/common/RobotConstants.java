@@ -6,6 +6,10 @@ public class RobotConstants {
     public static final String logDir = "/logs/";
     public static final String xmlDir = "/xml/";
 
+    // The frequency of the ControlLoop that runs the autonomous actions;
+    // motion profiles are computed for the same frequency.
+    public static final double CONTROL_LOOP_HZ = 100.0;
+
     public enum Alliance {
         BLUE, RED, UNKNOWN
     }
@@ -0,0 +1,113 @@
+package org.firstinspires.ftc.teamcode.common;
+
+import org.firstinspires.ftc.ftcdevcommon.RobotLogCommon;
+import org.firstinspires.ftc.ftcdevcommon.Threading;
+import org.firstinspires.ftc.ftcdevcommon.android.WorkingDirectory;
+import org.xml.sax.SAXException;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.xpath.XPathExpressionException;
+
+// Work that does not depend on the OpMode the driver selects is done
+// once, on a background thread, when the robot controller app starts:
+// resolve the working directory, open the log, and parse and compile
+// every OpMode in RobotAction.xml. OpMode INIT then fetches the compiled
+// data from here. The hardware map is not available until an OpMode is
+// running so the hardware can't be warmed up.
+//
+// start() is called by reflection from FtcRobotControllerActivity.onCreate
+// because the FtcRobotController module can't depend on TeamCode.
+public class RobotWarmup {
+
+    private static final String TAG = "RobotWarmup";
+
+    private static final AtomicBoolean warmupStarted = new AtomicBoolean();
+    private static volatile CompletableFuture<PreparedActions> warmupFuture;
+
+    public static void start() {
+        if (!warmupStarted.compareAndSet(false, true))
+            return; // onCreate may run more than once in the same process
+
+        warmupFuture = Threading.launchAsync(RobotWarmup::warmUp);
+    }
+
+    // Returns the compiled data for the OpMode. If the warm-up is still
+    // running, waits for it. If the warm-up did not run, failed, or did
+    // not compile the OpMode, or if RobotAction.xml has changed since,
+    // the OpMode is compiled now in the usual way so that any errors are
+    // reported exactly as they would have been without the warm-up.
+    public static RobotActionXML.RobotActionData getOpModeData(String pXMLDirectory, String pOpMode)
+            throws ParserConfigurationException, SAXException, IOException, XPathExpressionException, InterruptedException {
+        CompletableFuture<PreparedActions> future = warmupFuture;
+        if (future != null) {
+            try {
+                PreparedActions prepared = future.get();
+                RobotActionXML.RobotActionData actionData = prepared.getIfCurrent(pXMLDirectory, pOpMode);
+                if (actionData != null) {
+                    RobotLogCommon.c(TAG, "Using the warmed-up data for OpMode " + pOpMode);
+                    return actionData;
+                }
+            } catch (ExecutionException ex) {
+                RobotLogCommon.d(TAG, "Warm-up failed: " + ex.getCause());
+            }
+        }
+
+        return new RobotActionXML(pXMLDirectory).getOpModeData(pOpMode);
+    }
+
+    private static PreparedActions warmUp() throws ParserConfigurationException, SAXException, IOException {
+        String workingDirectory = WorkingDirectory.getWorkingDirectory();
+        RobotLogCommon.initialize(workingDirectory + RobotConstants.logDir);
+        RobotLogCommon.c(TAG, "Warm-up started");
+
+        String xmlDirectory = workingDirectory + RobotConstants.xmlDir;
+        PreparedActions prepared = new PreparedActions(xmlDirectory);
+        RobotActionXML actionXML = new RobotActionXML(xmlDirectory);
+        for (String opMode : actionXML.getOpModeIds()) {
+            try {
+                prepared.actionData.put(opMode, actionXML.getOpModeData(opMode));
+            } catch (Exception ex) {
+                // Not fatal here; the error is reported again if the OpMode is selected.
+                RobotLogCommon.d(TAG, "Unable to compile OpMode " + opMode + ": " + ex.getMessage());
+            }
+        }
+
+        RobotLogCommon.c(TAG, "Warm-up complete: compiled " + prepared.actionData.size() + " OpMode(s)");
+        return prepared;
+    }
+
+    // The compiled data for all OpModes together with the size and
+    // modification time of the XML file it came from.
+    private static class PreparedActions {
+        private final String xmlDirectory;
+        private final long xmlLength;
+        private final long xmlLastModified;
+        private final HashMap<String, RobotActionXML.RobotActionData> actionData = new HashMap<>();
+
+        private PreparedActions(String pXMLDirectory) {
+            // Taken before parsing so that a change during the warm-up
+            // makes the results stale.
+            File xmlFile = new File(pXMLDirectory + RobotActionXML.FILE_NAME);
+            xmlDirectory = pXMLDirectory;
+            xmlLength = xmlFile.length();
+            xmlLastModified = xmlFile.lastModified();
+        }
+
+        // Returns null if the data is missing or out of date.
+        private RobotActionXML.RobotActionData getIfCurrent(String pXMLDirectory, String pOpMode) {
+            File xmlFile = new File(pXMLDirectory + RobotActionXML.FILE_NAME);
+            if (!pXMLDirectory.equals(xmlDirectory) || xmlFile.length() != xmlLength ||
+                    xmlFile.lastModified() != xmlLastModified)
+                return null;
+
+            return actionData.get(pOpMode);
+        }
+    }
+}
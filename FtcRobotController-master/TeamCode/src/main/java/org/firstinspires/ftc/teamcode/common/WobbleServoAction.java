@@ -0,0 +1,69 @@
+package org.firstinspires.ftc.teamcode.common;
+
+import org.firstinspires.ftc.ftcdevcommon.RobotXMLElement;
+import org.firstinspires.ftc.ftcdevcommon.XPathAccess;
+import org.firstinspires.ftc.teamcode.ActuatorOutputs;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+import javax.xml.xpath.XPathExpressionException;
+
+// A team-defined command, registered in ActionRegistry.
+//   <WOBBLE_SERVO>
+//     <position>down</position>
+//   </WOBBLE_SERVO>
+// A servo reports no position, so the action ends after the time the
+// servo needs to travel. The servo is looked up in prepare(), during INIT.
+public class WobbleServoAction extends AutoAction {
+
+    public static final String COMMAND = "WOBBLE_SERVO";
+    private static final String SERVO_NAME = "wobble_servo";
+    private static final double UP_POSITION = 1.0;
+    private static final double DOWN_POSITION = 0.0;
+    private static final double TRAVEL_SECONDS = 0.5;
+
+    public final boolean down;
+
+    private ActuatorOutputs.ServoOutput servoOutput; // set in prepare()
+
+    public WobbleServoAction(boolean pDown) {
+        super(COMMAND);
+        down = pDown;
+    }
+
+    @Override
+    public void prepare(ActionContext pContext) {
+        servoOutput = pContext.robot.getServoOutput(SERVO_NAME);
+    }
+
+    @Override
+    public void start(ActionContext pContext) {
+        servoOutput.setPosition(down ? DOWN_POSITION : UP_POSITION);
+    }
+
+    @Override
+    public boolean tick(ActionContext pContext, double pElapsedSeconds) {
+        return pElapsedSeconds < TRAVEL_SECONDS;
+    }
+
+    @Override
+    public void writeParameters(DataOutputStream pOut) throws IOException {
+        pOut.writeBoolean(down);
+    }
+
+    public static class Handler implements ActionHandler {
+        @Override
+        public AutoAction compile(RobotXMLElement pElement) throws XPathExpressionException {
+            XPathAccess actionXPath = new XPathAccess(pElement);
+            String position = actionXPath.getStringInRange("position", actionXPath.validRange("up", "down"));
+            return new WobbleServoAction(position.equals("down"));
+        }
+
+        @Override
+        public AutoAction read(ByteBuffer pBuffer) {
+            return new WobbleServoAction(pBuffer.get() != 0);
+        }
+    }
+}
@@ -0,0 +1,79 @@
+package org.firstinspires.ftc.teamcode.sim;
+
+import org.firstinspires.ftc.teamcode.ProgrammingBoardHardware;
+import org.firstinspires.ftc.teamcode.RobotDevices;
+import org.firstinspires.ftc.teamcode.RobotMotor;
+import org.firstinspires.ftc.teamcode.RobotServo;
+
+import java.util.LinkedHashMap;
+
+// Devices for running the robot code on a plain JVM. Time stands still
+// until step() is called, so a run goes as fast as the computer allows,
+// and the same run always gives the same results. Every device that the
+// robot code asks for exists; motors are Rev HD Hex motors like the one on
+// the programming board.
+public class SimulatedDevices implements RobotDevices {
+
+    public static final double PHYSICS_STEP = 0.001; // seconds
+    private static final double MOTOR_TIME_CONSTANT = 0.1;
+    private static final double BRAKE_TIME_CONSTANT = 0.05;
+    private static final double COAST_TIME_CONSTANT = 0.5;
+
+    private final LinkedHashMap<String, SimulatedMotor> motors = new LinkedHashMap<>();
+    private final LinkedHashMap<String, SimulatedServo> servos = new LinkedHashMap<>();
+    private long nanoTime;
+    private long sensorReads;
+
+    @Override
+    public SimulatedMotor getMotor(String pName) {
+        SimulatedMotor motor = motors.get(pName);
+        if (motor == null) {
+            motor = new SimulatedMotor(ProgrammingBoardHardware.MAX_VELOCITY,
+                    MOTOR_TIME_CONSTANT, BRAKE_TIME_CONSTANT, COAST_TIME_CONSTANT);
+            motors.put(pName, motor);
+        }
+        return motor;
+    }
+
+    @Override
+    public SimulatedServo getServo(String pName) {
+        SimulatedServo servo = servos.get(pName);
+        if (servo == null) {
+            servo = new SimulatedServo();
+            servos.put(pName, servo);
+        }
+        return servo;
+    }
+
+    @Override
+    public void clearSensorCache() {
+        sensorReads++;
+    }
+
+    @Override
+    public long nanoTime() {
+        return nanoTime;
+    }
+
+    public double getSeconds() {
+        return nanoTime / 1_000_000_000.0;
+    }
+
+    public long getSensorReads() {
+        return sensorReads;
+    }
+
+    // Advance the simulation in fixed physics steps; the last step may be
+    // shorter.
+    public void step(double pSeconds) {
+        double remaining = pSeconds;
+        double dt;
+        while (remaining > 0.0) {
+            dt = Math.min(PHYSICS_STEP, remaining);
+            for (SimulatedMotor motor : motors.values())
+                motor.step(dt);
+            remaining -= dt;
+        }
+        nanoTime += Math.round(pSeconds * 1_000_000_000.0);
+    }
+}
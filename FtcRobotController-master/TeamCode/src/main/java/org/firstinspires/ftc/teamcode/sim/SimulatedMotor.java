@@ -0,0 +1,79 @@
+package org.firstinspires.ftc.teamcode.sim;
+
+import com.qualcomm.robotcore.hardware.DcMotor;
+
+import org.firstinspires.ftc.teamcode.RobotMotor;
+
+// A DC motor with an encoder and the inertia of what it drives, modelled
+// as a first-order lag: the velocity approaches power * maxVelocity with
+// the time constant. With zero power the motor slows with the (shorter)
+// braking time constant or, if it floats, with the coasting one. The
+// direction is ignored because it reverses both the power and the
+// encoder.
+public class SimulatedMotor implements RobotMotor {
+
+    public final double maxVelocity; // clicks per second at full power
+    public final double timeConstant; // seconds
+    public final double brakeTimeConstant;
+    public final double coastTimeConstant;
+
+    private DcMotor.ZeroPowerBehavior zeroPowerBehavior = DcMotor.ZeroPowerBehavior.FLOAT;
+    private DcMotor.RunMode mode = DcMotor.RunMode.RUN_WITHOUT_ENCODER;
+    private double power;
+    private double velocity; // clicks per second
+    private double position; // clicks
+
+    public SimulatedMotor(double pMaxVelocity, double pTimeConstant, double pBrakeTimeConstant, double pCoastTimeConstant) {
+        maxVelocity = pMaxVelocity;
+        timeConstant = pTimeConstant;
+        brakeTimeConstant = pBrakeTimeConstant;
+        coastTimeConstant = pCoastTimeConstant;
+    }
+
+    @Override
+    public void setDirection(DcMotor.Direction pDirection) {
+    }
+
+    @Override
+    public void setZeroPowerBehavior(DcMotor.ZeroPowerBehavior pZeroPowerBehavior) {
+        zeroPowerBehavior = pZeroPowerBehavior;
+    }
+
+    @Override
+    public void setMode(DcMotor.RunMode pMode) {
+        mode = pMode;
+        if (mode == DcMotor.RunMode.STOP_AND_RESET_ENCODER) {
+            power = 0.0;
+            velocity = 0.0;
+            position = 0.0;
+        }
+    }
+
+    @Override
+    public void setPower(double pPower) {
+        if (mode != DcMotor.RunMode.STOP_AND_RESET_ENCODER)
+            power = Math.max(-1.0, Math.min(1.0, pPower));
+    }
+
+    @Override
+    public int getCurrentPosition() {
+        return (int) Math.round(position);
+    }
+
+    @Override
+    public double getVelocity() {
+        return velocity;
+    }
+
+    // Advance the motor by one physics step.
+    void step(double pSeconds) {
+        double tau = timeConstant;
+        if (power == 0.0)
+            tau = zeroPowerBehavior == DcMotor.ZeroPowerBehavior.BRAKE ? brakeTimeConstant : coastTimeConstant;
+
+        double target = power * maxVelocity;
+        double newVelocity = target + (velocity - target) * Math.exp(-pSeconds / tau);
+        position += (velocity + newVelocity) / 2 * pSeconds;
+        velocity = newVelocity;
+    }
+}
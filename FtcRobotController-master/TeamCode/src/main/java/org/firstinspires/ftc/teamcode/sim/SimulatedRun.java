@@ -0,0 +1,113 @@
+package org.firstinspires.ftc.teamcode.sim;
+
+import com.qualcomm.robotcore.hardware.DcMotor;
+
+import org.firstinspires.ftc.ftcdevcommon.ControlLoop;
+import org.firstinspires.ftc.ftcdevcommon.LatencyHistogram;
+import org.firstinspires.ftc.ftcdevcommon.RobotLogCommon;
+import org.firstinspires.ftc.teamcode.ProgrammingBoardHardware;
+import org.firstinspires.ftc.teamcode.common.ActionContext;
+import org.firstinspires.ftc.teamcode.common.ActionRunner;
+import org.firstinspires.ftc.teamcode.common.RobotActionXML;
+import org.firstinspires.ftc.teamcode.common.RobotConstants;
+import org.firstinspires.ftc.teamcode.common.RobotConstantsUltimateGoal;
+
+import java.io.IOException;
+import java.util.function.Supplier;
+
+// Runs the actions of an OpMode from RobotAction.xml against
+// SimulatedDevices with the same ActionRunner that FTCAuto uses on the
+// robot, but in simulated time: the simulation advances by exactly one
+// period between ticks of the control loop, so a run takes as long as the
+// computation and no longer. For regression and performance testing off
+// the robot, e.g.
+//   RobotActionXML.RobotActionData actionData = new RobotActionXML(xmlDir).getOpModeData("TEST");
+//   SimulatedRun run = new SimulatedRun(actionData);
+//   run.runRobot();
+//   int clicks = run.devices.getMotor("lf").getCurrentPosition();
+// There is no camera; the target zone for OCV_CHOICE is given instead.
+public class SimulatedRun {
+
+    private static final String TAG = "SimulatedRun";
+    private static final double DEFAULT_TIME_LIMIT = 30.0; // seconds, the autonomous period
+
+    public final SimulatedDevices devices = new SimulatedDevices();
+    public final ProgrammingBoardHardware robot = new ProgrammingBoardHardware(devices);
+    private final ActionContext actionContext = new ActionContext(null, robot);
+    private final ActionRunner actionRunner = new ActionRunner(actionContext, new SimulatedLoop());
+    private final RobotActionXML.RobotActionData actionData;
+    private final double timeLimit;
+    private final RobotConstantsUltimateGoal.TargetZone targetZone;
+    private final double period = 1.0 / RobotConstants.CONTROL_LOOP_HZ;
+    private long ticks;
+
+    public SimulatedRun(RobotActionXML.RobotActionData pActionData) {
+        this(pActionData, DEFAULT_TIME_LIMIT);
+    }
+
+    // The run stops when the simulated time reaches the limit, just as the
+    // OpMode would be stopped at the end of the autonomous period.
+    public SimulatedRun(RobotActionXML.RobotActionData pActionData, double pTimeLimit) {
+        this(pActionData, pTimeLimit, RobotConstantsUltimateGoal.TargetZone.TARGET_ZONE_NPOS);
+    }
+
+    public SimulatedRun(RobotActionXML.RobotActionData pActionData, double pTimeLimit,
+                        RobotConstantsUltimateGoal.TargetZone pTargetZone) {
+        actionData = pActionData;
+        timeLimit = pTimeLimit;
+        targetZone = pTargetZone;
+
+        // As in FTCAuto
+        robot.leftFrontMotor.setMode(DcMotor.RunMode.STOP_AND_RESET_ENCODER);
+        robot.leftFrontMotor.setMode(DcMotor.RunMode.RUN_USING_ENCODER);
+        actionRunner.prepare(actionData);
+    }
+
+    // Returns true if all of the actions completed within the time limit.
+    public boolean runRobot() throws InterruptedException, IOException {
+        try {
+            return actionRunner.run(actionData, targetZone);
+        } finally {
+            RobotLogCommon.i(TAG, "Simulated " + getSeconds() + " seconds in " + ticks + " ticks; actuator outputs: " + robot.outputs);
+        }
+    }
+
+    public double getSeconds() {
+        return devices.getSeconds();
+    }
+
+    // The number of control periods simulated.
+    public long getTicks() {
+        return ticks;
+    }
+
+    private boolean isActive() {
+        return devices.getSeconds() < timeLimit;
+    }
+
+    // As ControlLoop but the simulation is advanced by one period after
+    // every tick instead of waiting for it to pass.
+    private class SimulatedLoop implements ActionRunner.Loop {
+        @Override
+        public boolean isActive() {
+            return SimulatedRun.this.isActive();
+        }
+
+        @Override
+        public Supplier<String> run(ControlLoop.TickCallback pCallback, LatencyHistogram pPeriods) throws InterruptedException {
+            long startNanos = devices.nanoTime();
+            long tick = 0;
+            while (isActive()) {
+                if (!pCallback.onTick(tick++, (devices.nanoTime() - startNanos) / 1_000_000_000.0))
+                    break;
+                devices.step(period);
+                ticks++;
+                if (pPeriods != null)
+                    pPeriods.recordNanos(Math.round(period * 1_000_000_000.0));
+            }
+            final long loopTicks = tick;
+            final double seconds = (devices.nanoTime() - startNanos) / 1_000_000_000.0;
+            return () -> loopTicks + " ticks in " + seconds + " simulated s";
+        }
+    }
+}
@@ -0,0 +1,18 @@
+package org.firstinspires.ftc.teamcode.sim;
+
+import org.firstinspires.ftc.teamcode.RobotServo;
+
+// A servo only records the last position it was given.
+public class SimulatedServo implements RobotServo {
+
+    private double position = Double.NaN; // never set
+
+    @Override
+    public void setPosition(double pPosition) {
+        position = pPosition;
+    }
+
+    public double getPosition() {
+        return position;
+    }
+}
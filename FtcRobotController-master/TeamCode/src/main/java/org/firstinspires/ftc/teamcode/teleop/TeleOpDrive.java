@@ -38,10 +38,15 @@ public class TeleOpDrive extends LinearOpMode {
 
             waitForStart(); // wait for the driver to push "Start"
 
+            // No robot.refresh(): nothing here reads robot.sensors, so a
+            // bulk read on every pass would only cost a Lynx transaction.
+            // Call it at the top of the loop once something does.
             while (opModeIsActive()) {
                 updateButtons();
                 updatePlayerOne();
+                robot.outputs.flush();
             }
+            RobotLogCommon.d(TAG, "Actuator outputs: " + robot.outputs);
         } catch (Exception ex) {
             FTCErrorHandling.handleFtcErrors(ex, TAG, this);
         } finally {
@@ -59,11 +64,11 @@ public class TeleOpDrive extends LinearOpMode {
     // should be called once per cycle.
     private void updatePlayerOne() {
         if (driveButton.is(FTCButton.State.HELD)) {
-            robot.leftFrontMotor.setPower(0.5);
+            robot.leftFrontOutput.setPower(0.5);
             telemetry.addData("Driving", "Left front");
             telemetry.update();
         } else
-            robot.leftFrontMotor.setPower(0.0);
+            robot.leftFrontOutput.setPower(0.0);
     }
 
 }
@@ -0,0 +1,68 @@
+package org.firstinspires.ftc.teamcode.auto.vision;
+
+import org.firstinspires.ftc.ftcdevcommon.AutonomousRobotException;
+import org.junit.Test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+// GrayThreshold.process() on a 4 x 3 gray image. For a gray pixel the
+// fixed point conversion gives back the level exactly, so the expected
+// values can be worked out by hand.
+public class GrayThresholdTest {
+
+    private static final int WIDTH = 4;
+    private static final int HEIGHT = 3;
+
+    // White border around a 2 x 2 ROI of 10, 20, 30, 200 at (1, 1).
+    private static final int[] PIXELS = {
+            gray(255), gray(255), gray(255), gray(255),
+            gray(255), gray(10), gray(20), gray(255),
+            gray(255), gray(30), gray(200), gray(255)
+    };
+
+    // Shift the median to 100, then white above 150.
+    private final GrayThreshold grayThreshold = new GrayThreshold(new VisionParameters.GrayParameters(100, 150));
+
+    @Test
+    public void roiIsShiftedByItsMedianAndThresholded() {
+        byte[] binary = grayThreshold.process(PIXELS, WIDTH, HEIGHT, new VisionParameters.FTCRect(1, 1, 2, 2));
+
+        // Lower median of 10, 20, 30, 200; shifted by 80 only 200 is above 150.
+        assertEquals(20, grayThreshold.getMedian());
+        assertEquals(1, grayThreshold.getWhitePixels());
+        assertArrayEquals(new byte[]{0, 0, 0, (byte) 255}, binary);
+        assertEquals(1, grayThreshold.grayTimes.getCount());
+    }
+
+    @Test
+    public void emptyRoiIsTheWholeImage() {
+        byte[] binary = grayThreshold.process(PIXELS, WIDTH, HEIGHT, new VisionParameters.FTCRect(0, 0, 0, 0));
+
+        // Eight of the twelve pixels are 255; shifted by -155 nothing is above 150.
+        assertEquals(255, grayThreshold.getMedian());
+        assertEquals(0, grayThreshold.getWhitePixels());
+        assertEquals(WIDTH * HEIGHT, binary.length);
+    }
+
+    @Test
+    public void roiOutsideOfTheImageIsRejected() {
+        assertRejected(new VisionParameters.FTCRect(3, 1, 2, 2)); // too wide
+        assertRejected(new VisionParameters.FTCRect(1, 2, 2, 2)); // too high
+        assertRejected(new VisionParameters.FTCRect(-1, 0, 2, 2));
+    }
+
+    private void assertRejected(VisionParameters.FTCRect pROI) {
+        try {
+            grayThreshold.process(PIXELS, WIDTH, HEIGHT, pROI);
+            fail("ROI " + pROI.x + ", " + pROI.y + ", " + pROI.width + ", " + pROI.height + " was accepted");
+        } catch (AutonomousRobotException ex) {
+            // expected
+        }
+    }
+
+    private static int gray(int pLevel) {
+        return 0xff000000 | (pLevel << 16) | (pLevel << 8) | pLevel;
+    }
+}
@@ -0,0 +1,138 @@
+package org.firstinspires.ftc.teamcode.sim;
+
+import org.firstinspires.ftc.ftcdevcommon.AutonomousRobotException;
+import org.firstinspires.ftc.ftcdevcommon.RobotLogCommon;
+import org.firstinspires.ftc.teamcode.common.RobotActionXML;
+import org.firstinspires.ftc.teamcode.common.RobotConstantsUltimateGoal;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+// Runs OCV_CHOICE in a SimulatedRun for every target zone. The branches
+// are SLEEPs of different lengths, so the simulated time of a run tells
+// which branch was taken.
+public class OcvChoiceTest {
+
+    private static final double TOLERANCE = 0.001; // seconds
+
+    private static final String ROBOT_ACTION_XML =
+            "<RobotAction>\n" +
+            "  <OpMode id=\"WITH_DEFAULT\">\n" +
+            "    <parameters/>\n" +
+            "    <actions>\n" +
+            "      <SLEEP><ms>100</ms></SLEEP>\n" +
+            "      <OCV_CHOICE>\n" +
+            "        <TARGET_ZONE_B><SLEEP><ms>500</ms></SLEEP></TARGET_ZONE_B>\n" +
+            "        <TARGET_ZONE_NPOS><SLEEP><ms>2000</ms></SLEEP></TARGET_ZONE_NPOS>\n" +
+            "      </OCV_CHOICE>\n" +
+            "      <SLEEP><ms>100</ms></SLEEP>\n" +
+            "    </actions>\n" +
+            "  </OpMode>\n" +
+            "  <OpMode id=\"ALL_ZONES\">\n" +
+            "    <parameters/>\n" +
+            "    <actions>\n" +
+            "      <OCV_CHOICE>\n" +
+            "        <TARGET_ZONE_A><SLEEP><ms>300</ms></SLEEP></TARGET_ZONE_A>\n" +
+            "        <TARGET_ZONE_B><SLEEP><ms>600</ms></SLEEP></TARGET_ZONE_B>\n" +
+            "        <TARGET_ZONE_C><SLEEP><ms>900</ms></SLEEP></TARGET_ZONE_C>\n" +
+            "      </OCV_CHOICE>\n" +
+            "      <SLEEP><ms>100</ms></SLEEP>\n" +
+            "    </actions>\n" +
+            "  </OpMode>\n" +
+            "  <OpMode id=\"MISSING_ZONE\">\n" +
+            "    <parameters/>\n" +
+            "    <actions>\n" +
+            "      <OCV_CHOICE>\n" +
+            "        <TARGET_ZONE_A/><TARGET_ZONE_B/>\n" +
+            "      </OCV_CHOICE>\n" +
+            "    </actions>\n" +
+            "  </OpMode>\n" +
+            "  <OpMode id=\"DUPLICATE_ZONE\">\n" +
+            "    <parameters/>\n" +
+            "    <actions>\n" +
+            "      <OCV_CHOICE>\n" +
+            "        <TARGET_ZONE_A/><TARGET_ZONE_B/><TARGET_ZONE_B/><TARGET_ZONE_C/>\n" +
+            "      </OCV_CHOICE>\n" +
+            "    </actions>\n" +
+            "  </OpMode>\n" +
+            "</RobotAction>\n";
+
+    private static File xmlDirectory;
+
+    @BeforeClass
+    public static void setUp() throws Exception {
+        xmlDirectory = Files.createTempDirectory("OcvChoiceTest").toFile();
+        Files.write(new File(xmlDirectory, "RobotAction.xml").toPath(), ROBOT_ACTION_XML.getBytes(StandardCharsets.UTF_8));
+        RobotLogCommon.initialize(xmlDirectory.getPath() + File.separator);
+    }
+
+    @AfterClass
+    public static void tearDown() {
+        RobotLogCommon.closeLog();
+        deleteRecursively(xmlDirectory); // getOpModeData() leaves a RobotActionCache directory
+    }
+
+    @Test
+    public void recognizedZoneRunsItsBranch() throws Exception {
+        assertEquals(0.7, simulate("WITH_DEFAULT", RobotConstantsUltimateGoal.TargetZone.TARGET_ZONE_B), TOLERANCE);
+        assertEquals(0.4, simulate("ALL_ZONES", RobotConstantsUltimateGoal.TargetZone.TARGET_ZONE_A), TOLERANCE);
+        assertEquals(0.7, simulate("ALL_ZONES", RobotConstantsUltimateGoal.TargetZone.TARGET_ZONE_B), TOLERANCE);
+        assertEquals(1.0, simulate("ALL_ZONES", RobotConstantsUltimateGoal.TargetZone.TARGET_ZONE_C), TOLERANCE);
+    }
+
+    @Test
+    public void missingZoneRunsTheNposDefault() throws Exception {
+        assertEquals(2.2, simulate("WITH_DEFAULT", RobotConstantsUltimateGoal.TargetZone.TARGET_ZONE_A), TOLERANCE);
+        assertEquals(2.2, simulate("WITH_DEFAULT", RobotConstantsUltimateGoal.TargetZone.TARGET_ZONE_C), TOLERANCE);
+        assertEquals(2.2, simulate("WITH_DEFAULT", RobotConstantsUltimateGoal.TargetZone.TARGET_ZONE_NPOS), TOLERANCE);
+    }
+
+    // Without a TARGET_ZONE_NPOS default, OCV_CHOICE is skipped when no
+    // zone was recognized.
+    @Test
+    public void noZoneAndNoDefaultSkipsTheChoice() throws Exception {
+        assertEquals(0.1, simulate("ALL_ZONES", RobotConstantsUltimateGoal.TargetZone.TARGET_ZONE_NPOS), TOLERANCE);
+    }
+
+    @Test
+    public void missingZoneWithoutDefaultIsRejected() throws Exception {
+        assertRejected("MISSING_ZONE", "no TARGET_ZONE_NPOS default");
+    }
+
+    @Test
+    public void duplicateZoneIsRejected() throws Exception {
+        assertRejected("DUPLICATE_ZONE", "Duplicate TARGET_ZONE_B");
+    }
+
+    private static double simulate(String pOpMode, RobotConstantsUltimateGoal.TargetZone pTargetZone) throws Exception {
+        RobotActionXML.RobotActionData actionData = new RobotActionXML(xmlDirectory.getPath() + File.separator).getOpModeData(pOpMode);
+        SimulatedRun run = new SimulatedRun(actionData, 30.0, pTargetZone);
+        assertTrue(pOpMode + " " + pTargetZone + " did not complete", run.runRobot());
+        return run.getSeconds();
+    }
+
+    private static void deleteRecursively(File pFile) {
+        File[] children = pFile.listFiles();
+        if (children != null)
+            for (File child : children)
+                deleteRecursively(child);
+        pFile.delete();
+    }
+
+    private static void assertRejected(String pOpMode, String pMessagePart) throws Exception {
+        try {
+            new RobotActionXML(xmlDirectory.getPath() + File.separator).getOpModeData(pOpMode);
+            fail(pOpMode + " was accepted");
+        } catch (AutonomousRobotException ex) {
+            assertTrue(ex.getMessage(), ex.getMessage().contains(pMessagePart));
+        }
+    }
+}
@@ -0,0 +1,43 @@
+package org.firstinspires.ftc.benchmarks;
+
+import org.firstinspires.ftc.ftcdevcommon.RobotLogCommon;
+import org.w3c.dom.Element;
+import org.xml.sax.InputSource;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.file.Files;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+
+// Scratch files and parsed XML for the benchmarks.
+final class BenchmarkFiles {
+
+    private BenchmarkFiles() {
+    }
+
+    // A new empty directory, with a trailing separator as the robot code
+    // expects.
+    static String createDirectory(String pPrefix) throws IOException {
+        return Files.createTempDirectory(pPrefix).toString() + File.separator;
+    }
+
+    // The code under test logs, so the log must be open.
+    static void initializeLog() throws IOException {
+        RobotLogCommon.initialize(createDirectory("jmh-log"));
+    }
+
+    static void deleteRecursively(File pFile) {
+        File[] children = pFile.listFiles();
+        if (children != null)
+            for (File child : children)
+                deleteRecursively(child);
+        pFile.delete();
+    }
+
+    static Element parseElement(String pXml) throws Exception {
+        return DocumentBuilderFactory.newInstance().newDocumentBuilder()
+                .parse(new InputSource(new StringReader(pXml))).getDocumentElement();
+    }
+}
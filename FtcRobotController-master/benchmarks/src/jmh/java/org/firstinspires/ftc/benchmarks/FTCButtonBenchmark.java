@@ -0,0 +1,28 @@
+package org.firstinspires.ftc.benchmarks;
+
+import org.firstinspires.ftc.teamcode.teleop.common.FTCButton;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+// FTCButton.update() is called for every button on every loop of a TeleOp.
+// The button is pressed for 8 calls and released for 8, so all of the
+// transitions are taken.
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class FTCButtonBenchmark {
+
+    private final FTCButton button = new FTCButton();
+    private int cycle;
+
+    @Benchmark
+    public FTCButton.State update() {
+        return button.update((cycle++ & 8) != 0);
+    }
+}
@@ -0,0 +1,52 @@
+package org.firstinspires.ftc.benchmarks;
+
+import org.firstinspires.ftc.teamcode.auto.vision.GrayThreshold;
+import org.firstinspires.ftc.teamcode.auto.vision.VisionParameters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+// GrayThreshold.process() on a 640 x 480 frame, for the ROI around the
+// ring stack in RingParameters.xml and for the whole frame. The image is
+// random colors, so the median and the threshold vary as they would on a
+// real frame.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class GrayThresholdBenchmark {
+
+    private static final int WIDTH = 640;
+    private static final int HEIGHT = 480;
+
+    @Param({"160x120", "640x480"})
+    public String roi;
+
+    private GrayThreshold grayThreshold;
+    private int[] pixels;
+    private VisionParameters.FTCRect imageROI;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        pixels = new int[WIDTH * HEIGHT];
+        for (int i = 0; i < pixels.length; i++)
+            pixels[i] = 0xff000000 | random.nextInt(0x1000000);
+
+        imageROI = roi.equals("160x120") ? new VisionParameters.FTCRect(240, 300, 160, 120) :
+                new VisionParameters.FTCRect(0, 0, 0, 0); // the whole image
+        grayThreshold = new GrayThreshold(new VisionParameters.GrayParameters(128, 150));
+    }
+
+    @Benchmark
+    public byte[] process() {
+        return grayThreshold.process(pixels, WIDTH, HEIGHT, imageROI);
+    }
+}
@@ -0,0 +1,43 @@
+package org.firstinspires.ftc.benchmarks;
+
+import org.firstinspires.ftc.teamcode.auto.vision.VisionParameters;
+import org.firstinspires.ftc.teamcode.auto.xml.ImageXML;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.w3c.dom.Element;
+
+import java.util.concurrent.TimeUnit;
+
+// Parsing the <hsv_parameters> of the ring recognition.
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ImageXMLBenchmark {
+
+    private final ImageXML imageXML = new ImageXML();
+    private Element hsvElement;
+
+    @Setup
+    public void setUp() throws Exception {
+        BenchmarkFiles.initializeLog();
+        hsvElement = BenchmarkFiles.parseElement("<hsv_parameters>\n" +
+                "  <hue_name>orange</hue_name>\n" +
+                "  <hue_low>5</hue_low>\n" +
+                "  <hue_high>25</hue_high>\n" +
+                "  <saturation_target>200</saturation_target>\n" +
+                "  <saturation_low_threshold>180</saturation_low_threshold>\n" +
+                "  <value_target>200</value_target>\n" +
+                "  <value_low_threshold>180</value_low_threshold>\n" +
+                "</hsv_parameters>");
+    }
+
+    @Benchmark
+    public VisionParameters.HSVParameters parseHSVParameters() {
+        return imageXML.parseHSVParameters(hsvElement);
+    }
+}
@@ -0,0 +1,58 @@
+package org.firstinspires.ftc.benchmarks;
+
+import org.firstinspires.ftc.teamcode.auto.vision.RingDetector;
+import org.firstinspires.ftc.teamcode.auto.vision.VisionParameters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+// RingDetector.countRingPixels() on every frame during INIT, for an ROI
+// around the ring stack and for a full 640 x 480 frame. The image is
+// random gray with an orange block where the rings would be.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class RingDetectorBenchmark {
+
+    @Param({"160x120", "640x480"})
+    public String size;
+
+    private RingDetector detector;
+    private int[] pixels;
+    private int width;
+    private int height;
+
+    @Setup
+    public void setUp() {
+        String[] dimensions = size.split("x");
+        width = Integer.parseInt(dimensions[0]);
+        height = Integer.parseInt(dimensions[1]);
+
+        Random random = new Random(42);
+        pixels = new int[width * height];
+        int gray;
+        for (int i = 0; i < pixels.length; i++) {
+            gray = random.nextInt(256);
+            pixels[i] = 0xff000000 | (gray << 16) | (gray << 8) | gray;
+        }
+        for (int row = height / 2; row < height * 3 / 4; row++)
+            for (int col = width / 4; col < width * 3 / 4; col++)
+                pixels[row * width + col] = 0xffff8c1a; // orange
+
+        VisionParameters.HSVParameters hsvParameters = new VisionParameters.HSVParameters("orange", 10, 25, 150, 100, 150, 100);
+        detector = new RingDetector(hsvParameters, width * height / 50, width * height / 10);
+    }
+
+    @Benchmark
+    public int countRingPixels() {
+        return detector.countRingPixels(pixels, width, height);
+    }
+}
@@ -0,0 +1,89 @@
+package org.firstinspires.ftc.benchmarks;
+
+import org.firstinspires.ftc.ftcdevcommon.RobotLogCommon;
+import org.firstinspires.ftc.teamcode.common.RobotActionXML;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.concurrent.TimeUnit;
+
+// The time to get the data for an OpMode from a synthetic RobotAction.xml
+// with the given number of OpModes. The requested OpMode is the last one
+// in the file, so the whole file is streamed. "compile" deletes the
+// RobotActionCache first and so measures parsing and compiling;
+// "cached" measures loading the compiled snapshot.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class RobotActionXMLBenchmark {
+
+    @Param({"1", "10", "100", "500"})
+    public int opModeCount;
+
+    private String xmlDirectory;
+    private String lastOpMode;
+
+    @Setup
+    public void setUp() throws IOException {
+        BenchmarkFiles.initializeLog();
+        xmlDirectory = BenchmarkFiles.createDirectory("jmh-xml");
+        lastOpMode = "OPMODE_" + (opModeCount - 1);
+
+        try (Writer xml = new FileWriter(xmlDirectory + "RobotAction.xml")) {
+            xml.write("<RobotAction>\n");
+            for (int i = 0; i < opModeCount; i++) {
+                xml.write("  <OpMode id=\"OPMODE_" + i + "\">\n" +
+                        "    <parameters>\n" +
+                        "      <lowest_logging_level>d</lowest_logging_level>\n" +
+                        "    </parameters>\n" +
+                        "    <actions>\n" +
+                        "      <FORWARD_BY_TIME><seconds>1.5</seconds><velocity>0.5</velocity></FORWARD_BY_TIME>\n" +
+                        "      <SLEEP><ms>250</ms></SLEEP>\n" +
+                        "      <FORWARD_BY_DISTANCE><inches>24.0</inches><velocity>0.5</velocity></FORWARD_BY_DISTANCE>\n" +
+                        "      <PARALLEL>\n" +
+                        "        <REVERSE_BY_TIME><seconds>1.0</seconds><velocity>-0.5</velocity></REVERSE_BY_TIME>\n" +
+                        "        <WOBBLE_SERVO><position>down</position></WOBBLE_SERVO>\n" +
+                        "      </PARALLEL>\n" +
+                        "    </actions>\n" +
+                        "  </OpMode>\n");
+            }
+            xml.write("</RobotAction>\n");
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        BenchmarkFiles.deleteRecursively(new File(xmlDirectory));
+        RobotLogCommon.closeLog();
+    }
+
+    @State(Scope.Thread)
+    public static class NoCache {
+        @Setup(Level.Invocation)
+        public void deleteCache(RobotActionXMLBenchmark pBenchmark) {
+            BenchmarkFiles.deleteRecursively(new File(pBenchmark.xmlDirectory + "RobotActionCache"));
+        }
+    }
+
+    @Benchmark
+    public RobotActionXML.RobotActionData compile(NoCache pNoCache) throws Exception {
+        return new RobotActionXML(xmlDirectory).getOpModeData(lastOpMode);
+    }
+
+    @Benchmark
+    public RobotActionXML.RobotActionData cached() throws Exception {
+        return new RobotActionXML(xmlDirectory).getOpModeData(lastOpMode);
+    }
+}
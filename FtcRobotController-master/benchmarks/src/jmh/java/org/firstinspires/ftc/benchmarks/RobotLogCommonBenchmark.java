@@ -0,0 +1,56 @@
+package org.firstinspires.ftc.benchmarks;
+
+import org.firstinspires.ftc.ftcdevcommon.RobotLogCommon;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+
+// Throughput of logging from several threads at once, e.g. the OpMode
+// thread and the threads of AutoWorker and the vision pipeline. The
+// entries go into the ring buffer; the LogWriter drains it in the
+// background and drops entries if it falls behind.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Threads(4)
+public class RobotLogCommonBenchmark {
+
+    private static final String TAG = "Benchmark";
+
+    @Setup
+    public void setUp() throws IOException {
+        BenchmarkFiles.initializeLog();
+        RobotLogCommon.setMinimimLoggingLevel(Level.FINE);
+    }
+
+    @TearDown
+    public void tearDown() {
+        RobotLogCommon.closeLog();
+    }
+
+    @Benchmark
+    public void enqueueMessage() {
+        RobotLogCommon.d(TAG, "Executing FTCAuto command SLEEP");
+    }
+
+    @Benchmark
+    public void enqueueTemplate() {
+        RobotLogCommon.d(TAG, "Pause by {} milliseconds", 1000L);
+    }
+
+    // Below the minimum level: the cost of a log call that is turned off.
+    @Benchmark
+    public void filtered() {
+        RobotLogCommon.vv(TAG, "Pause by {} milliseconds", 1000L);
+    }
+}
@@ -0,0 +1,50 @@
+package org.firstinspires.ftc.benchmarks;
+
+import org.firstinspires.ftc.ftcdevcommon.RobotXMLElement;
+import org.firstinspires.ftc.ftcdevcommon.XPathAccess;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.w3c.dom.Element;
+
+import java.util.concurrent.TimeUnit;
+
+import javax.xml.xpath.XPathExpressionException;
+
+// The cost of reading one parameter of an action, as the ActionHandlers
+// do for every action during INIT.
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class XPathAccessBenchmark {
+
+    private Element element;
+    private XPathAccess xpathAccess;
+
+    @Setup
+    public void setUp() throws Exception {
+        element = BenchmarkFiles.parseElement(
+                "<FORWARD_BY_TIME><seconds>3.0</seconds><velocity>0.5</velocity><ms>1000</ms></FORWARD_BY_TIME>");
+        xpathAccess = new XPathAccess(new RobotXMLElement(element));
+    }
+
+    @Benchmark
+    public int getInt() throws XPathExpressionException {
+        return xpathAccess.getInt("ms");
+    }
+
+    @Benchmark
+    public double getDouble() throws XPathExpressionException {
+        return xpathAccess.getDouble("velocity");
+    }
+
+    // A new XPathAccess for each action, as in the handlers.
+    @Benchmark
+    public double newXPathAccessGetDouble() throws XPathExpressionException {
+        return new XPathAccess(new RobotXMLElement(element)).getDouble("seconds");
+    }
+}
@@ -0,0 +1,111 @@
+package org.firstinspires.ftc.ftcdevcommon;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.logging.Level;
+
+// Desktop utility that turns a binary log written by RobotLogCommon with
+// LogFormat.BINARY or LogFormat.MAPPED back into the same text as FTCRobotLog.txt:
+//   [2019-08-29 13:46:11.496] [FINE   ] TAG message
+// Copy FTCRobotLog.bin.* from the robot's log directory and run, e.g.
+//   java org.firstinspires.ftc.ftcdevcommon.BinaryLogDecoder FTCRobotLog.bin.1 FTCRobotLog.bin.0
+// The decoded text goes to standard output. Pass the files oldest first.
+public class BinaryLogDecoder {
+
+    private static final String TAG = "BinaryLogDecoder";
+    private static final String format = "[%1$tF %1$tT.%1$tL] [%2$-7s] %3$s %n"; // same as the text log
+
+    public static void main(String[] args) throws IOException {
+        if (args.length == 0) {
+            System.err.println("Usage: BinaryLogDecoder <binary log file> ...");
+            System.exit(1);
+        }
+
+        for (String fileName : args)
+            decode(fileName, System.out);
+    }
+
+    public static void decode(String pFileName, PrintStream pOut) throws IOException {
+        byte[] contents;
+        try (RandomAccessFile file = new RandomAccessFile(pFileName, "r")) {
+            contents = new byte[(int) file.length()];
+            file.readFully(contents);
+        }
+
+        ByteBuffer buffer = ByteBuffer.wrap(contents);
+        if (buffer.remaining() < BinaryLogFormat.FILE_HEADER_SIZE || buffer.getInt() != BinaryLogFormat.MAGIC)
+            throw new AutonomousLoggingException(TAG, pFileName + " is not a binary robot log");
+        short version = buffer.getShort();
+        if (version != BinaryLogFormat.VERSION)
+            throw new AutonomousLoggingException(TAG, "Unsupported binary log version " + version + " in " + pFileName);
+
+        // First pass: collect the tags. A tag may be defined after its
+        // first use in a MAPPED file.
+        HashMap<Integer, String> tags = new HashMap<>();
+        StringBuilder scratch = new StringBuilder(256);
+        int position = BinaryLogFormat.FILE_HEADER_SIZE;
+        while ((position = nextRecord(buffer, position)) >= 0) {
+            if (buffer.get(position + 4) == BinaryLogFormat.RECORD_TAG) {
+                int tagId = buffer.getShort() & 0xFFFF;
+                tags.put(tagId, BinaryLogFormat.getString(buffer, scratch));
+            }
+            position += recordSpace(buffer, position);
+        }
+
+        // Second pass: the log entries.
+        StringBuilder text = new StringBuilder(256);
+        position = BinaryLogFormat.FILE_HEADER_SIZE;
+        while ((position = nextRecord(buffer, position)) >= 0) {
+            byte type = buffer.get(position + 4);
+            if (type == BinaryLogFormat.RECORD_MESSAGE || type == BinaryLogFormat.RECORD_TEMPLATE) {
+                long millis = buffer.getLong();
+                Level level = BinaryLogFormat.levelFromCode(buffer.get());
+                int tagId = buffer.getShort() & 0xFFFF;
+                String message = BinaryLogFormat.getString(buffer, scratch);
+
+                String tag = tags.get(tagId);
+                text.setLength(0);
+                text.append(tag == null ? "<tag " + tagId + ">" : tag).append(' ');
+                if (type == BinaryLogFormat.RECORD_TEMPLATE) {
+                    int argCount = buffer.get();
+                    int doubleArgs = buffer.get();
+                    long arg0 = buffer.getLong();
+                    long arg1 = (argCount > 1) ? buffer.getLong() : 0;
+                    LogRingBuffer.LogEntry.appendTemplate(text, message, argCount, doubleArgs, arg0, arg1);
+                } else
+                    text.append(message);
+
+                pOut.print(String.format(format, new Date(millis), level.getLocalizedName(), text));
+            }
+            // Skip tags, which we already have, and padding.
+
+            position += recordSpace(buffer, position);
+        }
+    }
+
+    // Finds the first committed record at or after pPosition, stepping
+    // over unused space and slots that were claimed but never committed,
+    // and leaves the buffer positioned after the record's type byte.
+    // Returns the position of the record, or -1 at the end.
+    private static int nextRecord(ByteBuffer pBuffer, int pPosition) {
+        int position = pPosition;
+        while (position + BinaryLogFormat.RECORD_HEADER_SIZE <= pBuffer.limit()) {
+            int length = BinaryLogFormat.committedLength(pBuffer.getInt(position));
+            if (length >= 1 && position + 4 + length <= pBuffer.limit()) {
+                pBuffer.position(position + BinaryLogFormat.RECORD_HEADER_SIZE);
+                return position;
+            }
+            position += BinaryLogFormat.RECORD_ALIGNMENT;
+        }
+        return -1;
+    }
+
+    // The space taken by the committed record at pPosition.
+    private static int recordSpace(ByteBuffer pBuffer, int pPosition) {
+        return BinaryLogFormat.alignedSize(4 + BinaryLogFormat.committedLength(pBuffer.getInt(pPosition)));
+    }
+}
@@ -0,0 +1,174 @@
+package org.firstinspires.ftc.ftcdevcommon;
+
+import java.nio.ByteBuffer;
+import java.util.logging.Level;
+
+// Layout of the compact binary log written by RobotLogCommon when it is
+// initialized with LogFormat.BINARY or LogFormat.MAPPED and read back by
+// BinaryLogDecoder.
+// All numbers are big-endian (the ByteBuffer default).
+//
+// File:    int MAGIC, short VERSION, 2 bytes of padding, then records
+//          until the end of the file.
+// Record:  int commit word, byte type, body, then padding to a multiple
+//          of RECORD_ALIGNMENT bytes. The commit word is COMMIT_MARK in
+//          the top byte and the length of the type and body in the rest.
+//   TAG:      short tag id, string tag
+//   MESSAGE:  long millis, byte level, short tag id, string message
+//   TEMPLATE: long millis, byte level, short tag id, string template,
+//             byte argument count, byte double-argument flags,
+//             one long per argument (doubles as raw long bits)
+// String:  int byte count, then the characters in modified UTF-8 (as in
+//          DataOutput.writeUTF but without the 64K limit).
+//
+// A tag is written once per file, the first time it is used, and is
+// referred to by its id after that. Tag ids are unsigned shorts, so a file
+// holds at most MAX_TAGS tags; a writer that needs another one starts a
+// new file. In a MAPPED file several threads
+// write at once, so a record may come before the record of its tag.
+// The commit word of a MAPPED record is written last. A slot that was
+// claimed but never completed, e.g. because the thread was killed, has
+// no commit word; a reader steps over it RECORD_ALIGNMENT bytes at a time
+// until it finds the next commit word, so the complete records after it
+// are not lost. COMMIT_MARK is a byte that modified UTF-8 never uses, so
+// the text in a slot that was left half written can't pass for one. A
+// PAD record fills space that was claimed but is not needed.
+class BinaryLogFormat {
+
+    static final int MAGIC = 0x46544342; // "FTCB"
+    static final short VERSION = 2;
+    static final int FILE_HEADER_SIZE = 4 + 2 + 2; // magic + version + padding
+
+    static final byte RECORD_TAG = 1;
+    static final byte RECORD_MESSAGE = 2;
+    static final byte RECORD_TEMPLATE = 3;
+    static final byte RECORD_PAD = 4;
+
+    static final int RECORD_HEADER_SIZE = 4 + 1; // commit word + type
+    static final int RECORD_ALIGNMENT = 8;
+    static final int COMMIT_MARK = 0xFB000000;
+    static final int MAX_RECORD_LENGTH = 0x00FFFFFF;
+    static final int ENTRY_HEADER_SIZE = 8 + 1 + 2; // millis + level + tag id
+    static final int MAX_TAGS = 0x10000; // per file; ids 0 - 65535
+
+    static final int MAX_STRING_CHARS = 8192; // longer messages are truncated
+
+    // The index of a level in this array is its code in the file.
+    private static final Level[] LEVELS = {Level.SEVERE, Level.WARNING, Level.INFO,
+            Level.CONFIG, Level.FINE, Level.FINER, Level.FINEST};
+
+    // The commit word for a record of pRecordSize bytes including the
+    // commit word itself.
+    static int commitWord(int pRecordSize) {
+        return COMMIT_MARK | (pRecordSize - 4);
+    }
+
+    // The length after the commit word, or -1 if pWord is not a commit word.
+    static int committedLength(int pWord) {
+        if ((pWord & 0xFF000000) != COMMIT_MARK)
+            return -1;
+        return pWord & MAX_RECORD_LENGTH;
+    }
+
+    // The space a record of pRecordSize bytes takes in the file.
+    static int alignedSize(int pRecordSize) {
+        return (pRecordSize + RECORD_ALIGNMENT - 1) & -RECORD_ALIGNMENT;
+    }
+
+    static byte levelCode(Level pLevel) {
+        for (int i = 0; i < LEVELS.length; i++)
+            if (LEVELS[i] == pLevel)
+                return (byte) i;
+        return 2; // INFO for anything unexpected
+    }
+
+    static Level levelFromCode(byte pCode) {
+        if (pCode < 0 || pCode >= LEVELS.length)
+            throw new AutonomousLoggingException("BinaryLogFormat", "Invalid level code " + pCode);
+        return LEVELS[pCode];
+    }
+
+    // Number of characters of pString that will be written.
+    static int stringChars(String pString) {
+        return Math.min(pString.length(), MAX_STRING_CHARS);
+    }
+
+    // Encoded size of a string, including its length prefix.
+    static int stringSize(String pString) {
+        int chars = stringChars(pString);
+        int size = 4;
+        for (int i = 0; i < chars; i++) {
+            char c = pString.charAt(i);
+            if (c != 0 && c < 0x80)
+                size += 1;
+            else if (c < 0x800)
+                size += 2;
+            else
+                size += 3;
+        }
+        return size;
+    }
+
+    // Writes a string at the buffer's position without allocating.
+    static void putString(ByteBuffer pBuffer, String pString) {
+        int lengthPosition = pBuffer.position();
+        pBuffer.putInt(0); // placeholder
+        int chars = stringChars(pString);
+        for (int i = 0; i < chars; i++) {
+            char c = pString.charAt(i);
+            if (c != 0 && c < 0x80)
+                pBuffer.put((byte) c);
+            else if (c < 0x800) {
+                pBuffer.put((byte) (0xC0 | (c >> 6)));
+                pBuffer.put((byte) (0x80 | (c & 0x3F)));
+            } else {
+                pBuffer.put((byte) (0xE0 | (c >> 12)));
+                pBuffer.put((byte) (0x80 | ((c >> 6) & 0x3F)));
+                pBuffer.put((byte) (0x80 | (c & 0x3F)));
+            }
+        }
+        pBuffer.putInt(lengthPosition, pBuffer.position() - lengthPosition - 4);
+    }
+
+    // Writes a string at an absolute index, leaving the buffer's position
+    // alone so that several threads can write to different parts of the
+    // same buffer. Returns the index after the string.
+    static int putString(ByteBuffer pBuffer, int pIndex, String pString) {
+        int index = pIndex + 4;
+        int chars = stringChars(pString);
+        for (int i = 0; i < chars; i++) {
+            char c = pString.charAt(i);
+            if (c != 0 && c < 0x80)
+                pBuffer.put(index++, (byte) c);
+            else if (c < 0x800) {
+                pBuffer.put(index++, (byte) (0xC0 | (c >> 6)));
+                pBuffer.put(index++, (byte) (0x80 | (c & 0x3F)));
+            } else {
+                pBuffer.put(index++, (byte) (0xE0 | (c >> 12)));
+                pBuffer.put(index++, (byte) (0x80 | ((c >> 6) & 0x3F)));
+                pBuffer.put(index++, (byte) (0x80 | (c & 0x3F)));
+            }
+        }
+        pBuffer.putInt(pIndex, index - pIndex - 4);
+        return index;
+    }
+
+    static String getString(ByteBuffer pBuffer, StringBuilder pScratch) {
+        int byteCount = pBuffer.getInt();
+        int end = pBuffer.position() + byteCount;
+        pScratch.setLength(0);
+        while (pBuffer.position() < end) {
+            int b = pBuffer.get() & 0xFF;
+            if (b < 0x80)
+                pScratch.append((char) b);
+            else if ((b & 0xE0) == 0xC0)
+                pScratch.append((char) (((b & 0x1F) << 6) | (pBuffer.get() & 0x3F)));
+            else {
+                int b2 = pBuffer.get() & 0x3F;
+                int b3 = pBuffer.get() & 0x3F;
+                pScratch.append((char) (((b & 0x0F) << 12) | (b2 << 6) | b3));
+            }
+        }
+        return pScratch.toString();
+    }
+}
@@ -0,0 +1,143 @@
+package org.firstinspires.ftc.ftcdevcommon;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.HashMap;
+
+// Writes log entries in the compact format described in BinaryLogFormat
+// through a FileChannel. Like the FileHandler used for the text log, the
+// output rotates through a fixed number of files of a fixed maximum size:
+// <name>.0 is always the newest. Each file starts with its own table of
+// tags so that it can be decoded on its own.
+class BinaryLogSink implements LogSink {
+
+    private static final String TAG = "BinaryLogSink";
+    private static final int BUFFER_SIZE = 64 * 1024; // holds the largest possible record
+
+    private final String logFilePath;
+    private final int fileSizeLimit;
+    private final int fileCount;
+
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+    private final HashMap<String, Integer> tagIds = new HashMap<>();
+    private FileChannel channel;
+    private long fileSize; // including what's still in the buffer
+
+    BinaryLogSink(String pLogFilePath, int pFileSizeLimit, int pFileCount) throws IOException {
+        logFilePath = pLogFilePath;
+        fileSizeLimit = pFileSizeLimit;
+        fileCount = pFileCount;
+        startNewFile();
+    }
+
+    @Override
+    public void write(LogRingBuffer.LogEntry pEntry) throws IOException {
+        String message = (pEntry.supplier != null) ? pEntry.supplier.get() : pEntry.message;
+        boolean template = (pEntry.supplier == null) && (pEntry.argCount > 0);
+
+        int entrySize = BinaryLogFormat.RECORD_HEADER_SIZE + BinaryLogFormat.ENTRY_HEADER_SIZE +
+                BinaryLogFormat.stringSize(message);
+        if (template)
+            entrySize += 2 + (8 * pEntry.argCount);
+
+        Integer tagId = tagIds.get(pEntry.tag);
+        int tagSize = (tagId == null) ? tagRecordSize(pEntry.tag) : 0;
+        if (fileSize + BinaryLogFormat.alignedSize(entrySize) + BinaryLogFormat.alignedSize(tagSize) > fileSizeLimit ||
+                (tagId == null && tagIds.size() >= BinaryLogFormat.MAX_TAGS)) {
+            startNewFile(); // clears the table of tags
+            tagId = null;
+            tagSize = tagRecordSize(pEntry.tag);
+        }
+
+        if (buffer.remaining() < BinaryLogFormat.alignedSize(entrySize) + BinaryLogFormat.alignedSize(tagSize))
+            flush();
+
+        if (tagId == null) {
+            tagId = tagIds.size();
+            tagIds.put(pEntry.tag, tagId);
+            buffer.putInt(BinaryLogFormat.commitWord(tagSize));
+            buffer.put(BinaryLogFormat.RECORD_TAG);
+            buffer.putShort(tagId.shortValue());
+            BinaryLogFormat.putString(buffer, pEntry.tag);
+            pad(tagSize);
+        }
+
+        buffer.putInt(BinaryLogFormat.commitWord(entrySize));
+        buffer.put(template ? BinaryLogFormat.RECORD_TEMPLATE : BinaryLogFormat.RECORD_MESSAGE);
+        buffer.putLong(pEntry.millis);
+        buffer.put(BinaryLogFormat.levelCode(pEntry.level));
+        buffer.putShort(tagId.shortValue());
+        BinaryLogFormat.putString(buffer, message);
+        if (template) {
+            buffer.put((byte) pEntry.argCount);
+            buffer.put((byte) pEntry.doubleArgs);
+            buffer.putLong(pEntry.arg0);
+            if (pEntry.argCount > 1)
+                buffer.putLong(pEntry.arg1);
+        }
+        pad(entrySize);
+
+        fileSize += BinaryLogFormat.alignedSize(entrySize) + BinaryLogFormat.alignedSize(tagSize);
+    }
+
+    // Zeros after a record of pRecordSize bytes up to the next alignment.
+    private void pad(int pRecordSize) {
+        for (int i = pRecordSize; i < BinaryLogFormat.alignedSize(pRecordSize); i++)
+            buffer.put((byte) 0);
+    }
+
+    @Override
+    public void flush() throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining())
+            channel.write(buffer);
+        buffer.clear();
+    }
+
+    @Override
+    public synchronized void close() {
+        if (channel == null)
+            return;
+        try {
+            flush();
+            channel.close();
+        } catch (IOException iex) {
+            // Swallow - don't take down the application because of a logging problem.
+        }
+        channel = null;
+    }
+
+    private static int tagRecordSize(String pTag) {
+        return BinaryLogFormat.RECORD_HEADER_SIZE + 2 + BinaryLogFormat.stringSize(pTag);
+    }
+
+    // Shifts <name>.0 to <name>.1 and so on, dropping the oldest file,
+    // and starts a new <name>.0.
+    private void startNewFile() throws IOException {
+        if (channel != null) {
+            flush();
+            channel.close();
+        }
+
+        for (int i = fileCount - 1; i > 0; i--) {
+            File older = new File(logFilePath + "." + i);
+            File newer = new File(logFilePath + "." + (i - 1));
+            if (newer.exists() && (!older.exists() || older.delete()) && !newer.renameTo(older))
+                throw new AutonomousLoggingException(TAG, "Unable to rotate binary log file " + newer.getPath());
+        }
+
+        RandomAccessFile file = new RandomAccessFile(logFilePath + ".0", "rw");
+        file.setLength(0);
+        channel = file.getChannel();
+        tagIds.clear();
+
+        buffer.clear();
+        buffer.putInt(BinaryLogFormat.MAGIC);
+        buffer.putShort(BinaryLogFormat.VERSION);
+        buffer.putShort((short) 0); // padding
+        fileSize = BinaryLogFormat.FILE_HEADER_SIZE;
+    }
+}
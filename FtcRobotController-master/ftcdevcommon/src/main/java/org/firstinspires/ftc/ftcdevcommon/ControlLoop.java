@@ -0,0 +1,106 @@
+package org.firstinspires.ftc.ftcdevcommon;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.BooleanSupplier;
+
+// Runs a callback at a fixed rate, e.g. 100 Hz, instead of in a loop that
+// spins as fast as it can. Each deadline is computed from the start of the
+// loop (start + n * period), not from the end of the previous tick, so
+// the time taken by the callback and late wake-ups do not accumulate as
+// drift. Between ticks the thread parks with LockSupport.parkNanos.
+//
+// A tick that starts after its deadline is late by the jitter; a tick
+// that finishes after the next deadline has been missed is an overrun.
+// After an overrun the missed deadlines are skipped rather than run back
+// to back.
+public class ControlLoop {
+
+    private static final String TAG = "ControlLoop";
+
+    private final long periodNanos;
+
+    public interface TickCallback {
+        // Called once per period with the tick number (starting at 0) and
+        // the seconds since the loop started. Return false to stop the loop.
+        boolean onTick(long pTick, double pElapsedSeconds) throws InterruptedException;
+    }
+
+    public ControlLoop(double pFrequencyHz) {
+        if (pFrequencyHz <= 0.0 || pFrequencyHz > 1000.0)
+            throw new AutonomousRobotException(TAG, "Control loop frequency must be > 0 and <= 1000 Hz");
+        periodNanos = Math.round(TimeUnit.SECONDS.toNanos(1) / pFrequencyHz);
+    }
+
+    // Runs until the callback returns false or pActive returns false, which
+    // is checked before every tick (e.g. LinearOpMode::opModeIsActive).
+    public Stats run(BooleanSupplier pActive, TickCallback pCallback) throws InterruptedException {
+        return run(pActive, pCallback, null);
+    }
+
+    // As above; also records the time between the starts of successive
+    // ticks, i.e. the actual period, in pPeriods if it is not null.
+    public Stats run(BooleanSupplier pActive, TickCallback pCallback, LatencyHistogram pPeriods) throws InterruptedException {
+        long ticks = 0;
+        long overruns = 0;
+        long totalJitterNanos = 0;
+        long maxJitterNanos = 0;
+
+        long startNanos = System.nanoTime();
+        long deadline = startNanos;
+        long previousTickStart = startNanos;
+        while (pActive.getAsBoolean()) {
+            long tickStart = System.nanoTime();
+            if (pPeriods != null && ticks > 0)
+                pPeriods.recordNanos(tickStart - previousTickStart);
+            previousTickStart = tickStart;
+            long jitter = tickStart - deadline;
+            totalJitterNanos += jitter;
+            if (jitter > maxJitterNanos)
+                maxJitterNanos = jitter;
+
+            if (!pCallback.onTick(ticks++, (tickStart - startNanos) / 1_000_000_000.0))
+                break;
+
+            deadline += periodNanos;
+            long now = System.nanoTime();
+            if (now > deadline) {
+                overruns++;
+                // Skip to the next deadline that is still in the future.
+                long missed = (now - deadline) / periodNanos + 1;
+                deadline += missed * periodNanos;
+            }
+
+            long remaining;
+            while ((remaining = deadline - System.nanoTime()) > 0) {
+                LockSupport.parkNanos(this, remaining);
+                if (Thread.interrupted())
+                    throw new InterruptedException();
+            }
+        }
+
+        return new Stats(ticks, overruns, totalJitterNanos, maxJitterNanos, System.nanoTime() - startNanos);
+    }
+
+    public static class Stats {
+        public final long ticks;
+        public final long overruns;
+        public final double meanJitterMs;
+        public final double maxJitterMs;
+        public final double elapsedSeconds;
+
+        private Stats(long pTicks, long pOverruns, long pTotalJitterNanos, long pMaxJitterNanos, long pElapsedNanos) {
+            ticks = pTicks;
+            overruns = pOverruns;
+            meanJitterMs = (pTicks == 0) ? 0.0 : (pTotalJitterNanos / (double) pTicks) / 1_000_000.0;
+            maxJitterMs = pMaxJitterNanos / 1_000_000.0;
+            elapsedSeconds = pElapsedNanos / 1_000_000_000.0;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%d ticks in %.3f s, %d overruns, jitter mean %.3f ms, max %.3f ms",
+                    ticks, elapsedSeconds, overruns, meanJitterMs, maxJitterMs);
+        }
+    }
+}
@@ -0,0 +1,97 @@
+package org.firstinspires.ftc.ftcdevcommon;
+
+import java.util.Arrays;
+
+// A histogram of durations in microseconds in the style of HdrHistogram:
+// a fixed array of counts, allocated once, so that recording a value is a
+// few shifts and an increment and never allocates. Values below 128 us
+// are counted exactly; above that each power of two is divided into 64
+// buckets, so any value is reported to within 1/64 (about 1.6%). Values
+// above MAX_VALUE (about 71 minutes) are counted as MAX_VALUE, but the
+// exact maximum is kept.
+//
+// Not thread-safe; record from one thread.
+public class LatencyHistogram {
+
+    public static final long MAX_VALUE = (1L << 32) - 1;
+
+    private static final int SUB_BUCKET_BITS = 6;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS; // per power of two
+    private static final int LINEAR_LIMIT = SUB_BUCKETS * 2; // values below this are exact
+    private static final int BUCKET_COUNT = LINEAR_LIMIT + (32 - SUB_BUCKET_BITS - 1) * SUB_BUCKETS;
+
+    private final long[] counts = new long[BUCKET_COUNT];
+    private long totalCount;
+    private long max;
+    private long sum;
+
+    public void recordNanos(long pNanos) {
+        record(pNanos / 1000);
+    }
+
+    public void record(long pMicros) {
+        long value = Math.max(0, pMicros);
+        if (value > max)
+            max = value;
+        sum += value;
+        counts[indexOf(Math.min(value, MAX_VALUE))]++;
+        totalCount++;
+    }
+
+    public long getCount() {
+        return totalCount;
+    }
+
+    public long getMax() {
+        return max;
+    }
+
+    public double getMean() {
+        return (totalCount == 0) ? 0.0 : sum / (double) totalCount;
+    }
+
+    // The value at or below which the given percentage of the recorded
+    // values fall, as the highest value in its bucket but never more than
+    // the maximum; 0 if nothing has been recorded.
+    public long getValueAtPercentile(double pPercentile) {
+        if (totalCount == 0)
+            return 0;
+
+        long countAtPercentile = Math.max(1, (long) Math.ceil(Math.min(100.0, pPercentile) / 100.0 * totalCount));
+        if (countAtPercentile >= totalCount)
+            return max;
+
+        long runningCount = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            runningCount += counts[i];
+            if (runningCount >= countAtPercentile)
+                return Math.min(highestValueAt(i), max);
+        }
+        return max;
+    }
+
+    public void reset() {
+        Arrays.fill(counts, 0);
+        totalCount = 0;
+        max = 0;
+        sum = 0;
+    }
+
+    private static int indexOf(long pValue) {
+        if (pValue < LINEAR_LIMIT)
+            return (int) pValue;
+
+        // The shift that brings the value into [SUB_BUCKETS, 2 * SUB_BUCKETS).
+        int shift = 63 - Long.numberOfLeadingZeros(pValue) - SUB_BUCKET_BITS;
+        return LINEAR_LIMIT + (shift - 1) * SUB_BUCKETS + (int) ((pValue >> shift) - SUB_BUCKETS);
+    }
+
+    private static long highestValueAt(int pIndex) {
+        if (pIndex < LINEAR_LIMIT)
+            return pIndex;
+
+        int shift = (pIndex - LINEAR_LIMIT) / SUB_BUCKETS + 1;
+        long subBucket = (pIndex - LINEAR_LIMIT) % SUB_BUCKETS + SUB_BUCKETS;
+        return ((subBucket + 1) << shift) - 1;
+    }
+}
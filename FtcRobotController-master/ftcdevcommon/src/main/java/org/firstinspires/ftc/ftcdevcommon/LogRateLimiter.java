@@ -0,0 +1,171 @@
+package org.firstinspires.ftc.ftcdevcommon;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+
+// Per-tag rate limiting and sampling for RobotLogCommon, so that logging
+// inside a tight loop can't swamp the log. A limit applies to the entries
+// of its tag at its level and below; more severe entries always pass. The
+// tag "*" sets the limit for every tag that doesn't have its own: each
+// such tag gets its own limiter with the "*" settings the first time it
+// logs, so a noisy tag can't use up the entries of a quiet one.
+//
+// The rate limit is a token bucket implemented as a GCRA ("generic cell
+// rate algorithm"): one atomic long per tag, the theoretical arrival time
+// of the next entry, so checking a limit never blocks or allocates once
+// the tag has been seen. Sampling passes 1 in sampleEvery of the entries
+// that get through the rate limit. The suppressed entries are counted per
+// tag.
+class LogRateLimiter {
+
+    static final String ALL_TAGS = "*";
+
+    private static final long SUMMARY_INTERVAL_NANOS = 5_000_000_000L;
+
+    private final ConcurrentHashMap<String, TagLimiter> limiters = new ConcurrentHashMap<>(); // own limits
+    private final ConcurrentHashMap<String, TagLimiter> defaultLimiters = new ConcurrentHashMap<>(); // from "*"
+    private volatile RobotLogCommon.TagLimit defaultLimit;
+    private volatile boolean active;
+
+    void setLimit(RobotLogCommon.TagLimit pLimit) {
+        if (pLimit.tag.equals(ALL_TAGS)) {
+            defaultLimit = pLimit;
+            defaultLimiters.clear();
+        } else {
+            limiters.put(pLimit.tag, new TagLimiter(pLimit.tag, pLimit));
+            defaultLimiters.remove(pLimit.tag);
+        }
+        active = true;
+    }
+
+    void clear() {
+        active = false;
+        limiters.clear();
+        defaultLimit = null;
+        defaultLimiters.clear();
+    }
+
+    boolean isActive() {
+        return active;
+    }
+
+    // Returns the limiter that applies to an entry, or null if the entry
+    // is not limited.
+    TagLimiter limiterFor(String pTag, Level pLevel) {
+        TagLimiter limiter = limiters.get(pTag);
+        if (limiter == null) {
+            RobotLogCommon.TagLimit limit = defaultLimit;
+            if (limit == null || pLevel.intValue() > limit.level.intValue())
+                return null;
+
+            limiter = defaultLimiters.get(pTag);
+            if (limiter == null) {
+                TagLimiter newLimiter = new TagLimiter(pTag, limit);
+                limiter = defaultLimiters.putIfAbsent(pTag, newLimiter);
+                if (limiter == null)
+                    limiter = newLimiter;
+            }
+        }
+
+        if (pLevel.intValue() > limiter.level.intValue())
+            return null;
+        return limiter;
+    }
+
+    // Passes each limiter that has suppressed entries to the consumer
+    // along with the number suppressed since the last summary.
+    void drainSuppressed(SummaryConsumer pConsumer) {
+        for (TagLimiter limiter : limiters.values())
+            limiter.drainSuppressed(pConsumer);
+        for (TagLimiter limiter : defaultLimiters.values())
+            limiter.drainSuppressed(pConsumer);
+    }
+
+    // As drainSuppressed but only for the limiters whose summary is due,
+    // so that a tag that has gone quiet still reports what it dropped.
+    void drainDueSummaries(long pNowNanos, SummaryConsumer pConsumer) {
+        if (!active)
+            return;
+        for (TagLimiter limiter : limiters.values())
+            limiter.drainDueSummary(pNowNanos, pConsumer);
+        for (TagLimiter limiter : defaultLimiters.values())
+            limiter.drainDueSummary(pNowNanos, pConsumer);
+    }
+
+    interface SummaryConsumer {
+        void accept(String pTag, long pSuppressed);
+    }
+
+    static class TagLimiter {
+        final String tag;
+        final Level level;
+        private final long emissionIntervalNanos; // 0 for no rate limit
+        private final long toleranceNanos;
+        private final int sampleEvery;
+
+        private final AtomicLong theoreticalArrivalNanos = new AtomicLong(Long.MIN_VALUE);
+        private final AtomicLong sampleCount = new AtomicLong();
+        private final AtomicLong suppressedCount = new AtomicLong();
+        private final AtomicLong lastSummaryNanos = new AtomicLong(System.nanoTime());
+
+        TagLimiter(String pTag, RobotLogCommon.TagLimit pLimit) {
+            tag = pTag;
+            level = pLimit.level;
+            if (pLimit.perSecond > 0) {
+                emissionIntervalNanos = (long) (1_000_000_000L / pLimit.perSecond);
+                toleranceNanos = emissionIntervalNanos * (Math.max(pLimit.burst, 1) - 1);
+            } else {
+                emissionIntervalNanos = 0;
+                toleranceNanos = 0;
+            }
+            sampleEvery = Math.max(pLimit.sampleEvery, 1);
+        }
+
+        boolean allow(long pNowNanos) {
+            if (emissionIntervalNanos > 0) {
+                long arrival;
+                long nextArrival;
+                do {
+                    arrival = theoreticalArrivalNanos.get();
+                    long earliest = (arrival == Long.MIN_VALUE) ? pNowNanos : arrival;
+                    if (pNowNanos < earliest - toleranceNanos) {
+                        suppressedCount.incrementAndGet();
+                        return false; // over the rate
+                    }
+                    nextArrival = Math.max(earliest, pNowNanos) + emissionIntervalNanos;
+                } while (!theoreticalArrivalNanos.compareAndSet(arrival, nextArrival));
+            }
+
+            if (sampleEvery > 1 && (sampleCount.getAndIncrement() % sampleEvery) != 0) {
+                suppressedCount.incrementAndGet();
+                return false;
+            }
+
+            return true;
+        }
+
+        // Returns the number of entries suppressed since the last summary
+        // if it's time for another summary, otherwise 0.
+        long takeSummary(long pNowNanos) {
+            if (suppressedCount.get() == 0)
+                return 0;
+            long last = lastSummaryNanos.get();
+            if (pNowNanos - last < SUMMARY_INTERVAL_NANOS || !lastSummaryNanos.compareAndSet(last, pNowNanos))
+                return 0;
+            return suppressedCount.getAndSet(0);
+        }
+
+        private void drainDueSummary(long pNowNanos, SummaryConsumer pConsumer) {
+            long suppressed = takeSummary(pNowNanos);
+            if (suppressed > 0)
+                pConsumer.accept(tag, suppressed);
+        }
+
+        private void drainSuppressed(SummaryConsumer pConsumer) {
+            long suppressed = suppressedCount.getAndSet(0);
+            if (suppressed > 0)
+                pConsumer.accept(tag, suppressed);
+        }
+    }
+}
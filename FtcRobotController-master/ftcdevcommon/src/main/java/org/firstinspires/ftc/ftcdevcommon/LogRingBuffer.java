@@ -0,0 +1,267 @@
+package org.firstinspires.ftc.ftcdevcommon;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Supplier;
+import java.util.logging.Level;
+
+// Pre-allocated ring buffer that sits between the threads that log and
+// the single LogWriter thread in RobotLogCommon. Based on Dmitry Vyukov's
+// bounded MPMC queue --
+// https://www.1024cores.net/home/lock-free-algorithms/queues/bounded-mpmc-queue
+// Each slot carries a sequence number that tells producers whether the
+// slot is free and tells the consumer whether it is full. Producers never
+// block and, once the ring is built, nothing is allocated per entry.
+class LogRingBuffer {
+
+    private static final long PARK_NANOS = 100_000_000L; // backstop for a missed unpark
+    private static final long PUT_PARK_NANOS = 100_000L; // while put() waits for a free slot
+
+    private final LogEntry[] entries;
+    private final AtomicLongArray sequences;
+    private final int mask;
+
+    private final AtomicLong enqueuePosition = new AtomicLong();
+    private final AtomicLong dequeuePosition = new AtomicLong();
+    private final AtomicLong dropCount = new AtomicLong();
+
+    private volatile RobotLogCommon.OverflowPolicy overflowPolicy = RobotLogCommon.OverflowPolicy.DROP_NEWEST;
+    private volatile Thread consumerThread;
+    private volatile boolean consumerParked;
+
+    // The capacity must be a power of 2 so that a slot index is just a mask.
+    LogRingBuffer(int pCapacity) {
+        if (pCapacity < 2 || Integer.bitCount(pCapacity) != 1)
+            throw new AutonomousLoggingException("LogRingBuffer", "Ring capacity must be a power of 2");
+
+        entries = new LogEntry[pCapacity];
+        sequences = new AtomicLongArray(pCapacity);
+        for (int i = 0; i < pCapacity; i++) {
+            entries[i] = new LogEntry();
+            sequences.set(i, i);
+        }
+        mask = pCapacity - 1;
+    }
+
+    void setOverflowPolicy(RobotLogCommon.OverflowPolicy pOverflowPolicy) {
+        overflowPolicy = pOverflowPolicy;
+    }
+
+    // Called by any thread. Returns false if the entry was dropped.
+    // The message is either the complete text or a template whose {}
+    // placeholders are filled in from the primitive arguments by the
+    // consumer; see LogEntry.
+    boolean offer(long pMillis, Level pLevel, String pTag, String pMessage, Supplier<String> pSupplier,
+                  int pArgCount, int pDoubleArgs, long pArg0, long pArg1) {
+        return enqueue(pMillis, pLevel, pTag, pMessage, pSupplier, pArgCount, pDoubleArgs, pArg0, pArg1, 0);
+    }
+
+    // As offer() but, whatever the OverflowPolicy, waits up to pTimeoutNanos
+    // for a free slot instead of dropping an entry, e.g. for the last entry
+    // before the log is closed. Returns false on timeout.
+    boolean put(long pMillis, Level pLevel, String pTag, String pMessage, Supplier<String> pSupplier,
+                int pArgCount, int pDoubleArgs, long pArg0, long pArg1, long pTimeoutNanos) {
+        return enqueue(pMillis, pLevel, pTag, pMessage, pSupplier, pArgCount, pDoubleArgs, pArg0, pArg1,
+                Math.max(pTimeoutNanos, 1));
+    }
+
+    // A pTimeoutNanos of 0 means apply the OverflowPolicy when the ring is full.
+    private boolean enqueue(long pMillis, Level pLevel, String pTag, String pMessage, Supplier<String> pSupplier,
+                            int pArgCount, int pDoubleArgs, long pArg0, long pArg1, long pTimeoutNanos) {
+        long deadline = (pTimeoutNanos > 0) ? System.nanoTime() + pTimeoutNanos : 0;
+        long position = enqueuePosition.get();
+        while (true) {
+            int index = (int) position & mask;
+            long difference = sequences.get(index) - position;
+            if (difference == 0) {
+                if (enqueuePosition.compareAndSet(position, position + 1)) {
+                    LogEntry entry = entries[index];
+                    entry.millis = pMillis;
+                    entry.level = pLevel;
+                    entry.tag = pTag;
+                    entry.message = pMessage;
+                    entry.supplier = pSupplier;
+                    entry.argCount = pArgCount;
+                    entry.doubleArgs = pDoubleArgs;
+                    entry.arg0 = pArg0;
+                    entry.arg1 = pArg1;
+                    // A full volatile write (not lazySet) so that the check of
+                    // consumerParked below can't be reordered ahead of it.
+                    sequences.set(index, position + 1); // publish to the consumer
+
+                    if (consumerParked)
+                        LockSupport.unpark(consumerThread);
+                    return true;
+                }
+            } else if (difference < 0) {
+                // The ring is full.
+                if (pTimeoutNanos > 0) {
+                    if (System.nanoTime() - deadline >= 0)
+                        return false;
+                    wakeConsumer();
+                    LockSupport.parkNanos(this, PUT_PARK_NANOS);
+                } else if (overflowPolicy != RobotLogCommon.OverflowPolicy.DROP_OLDEST || !discardOldest()) {
+                    dropCount.incrementAndGet();
+                    return false;
+                }
+            }
+
+            position = enqueuePosition.get(); // lost a race; try again
+        }
+    }
+
+    // Called only by the consumer. Copies up to pBatch.length entries from
+    // the ring into the consumer's own (pre-allocated) entries and frees
+    // the slots. Returns the number of entries copied.
+    int drainTo(LogEntry[] pBatch) {
+        int count = 0;
+        long position = dequeuePosition.get();
+        while (count < pBatch.length) {
+            int index = (int) position & mask;
+            long difference = sequences.get(index) - (position + 1);
+            if (difference == 0) {
+                if (dequeuePosition.compareAndSet(position, position + 1)) {
+                    LogEntry entry = entries[index];
+                    pBatch[count].copyFrom(entry);
+                    entry.clear(); // don't hold on to the strings
+                    sequences.lazySet(index, position + mask + 1); // free the slot for producers
+                    count++;
+                }
+            } else if (difference < 0)
+                break; // the ring is empty
+
+            position = dequeuePosition.get();
+        }
+
+        return count;
+    }
+
+    // Called only by the consumer when the ring is empty. Parks the
+    // consumer until a producer signals that there is a new entry.
+    void awaitEntries() {
+        consumerThread = Thread.currentThread();
+        consumerParked = true;
+        try {
+            if (isEmpty()) // check again so that we can't miss a wake-up
+                LockSupport.parkNanos(this, PARK_NANOS);
+        } finally {
+            consumerParked = false;
+        }
+    }
+
+    // Wakes the consumer, e.g. to tell it that the log is closing.
+    void wakeConsumer() {
+        Thread consumer = consumerThread;
+        if (consumer != null)
+            LockSupport.unpark(consumer);
+    }
+
+    // The number of entries on the ring; only a snapshot when producers
+    // or the consumer are active.
+    long size() {
+        return Math.max(0, enqueuePosition.get() - dequeuePosition.get());
+    }
+
+    long getAndResetDropCount() {
+        return dropCount.getAndSet(0);
+    }
+
+    private boolean isEmpty() {
+        long position = dequeuePosition.get();
+        return sequences.get((int) position & mask) != position + 1;
+    }
+
+    // A producer that finds the ring full under DROP_OLDEST takes the
+    // oldest entry off the ring itself and throws it away. Returns false
+    // if the oldest entry can't be taken, in which case the new entry is
+    // dropped instead.
+    private boolean discardOldest() {
+        long position = dequeuePosition.get();
+        int index = (int) position & mask;
+        if (sequences.get(index) != position + 1)
+            return false; // the oldest entry is still being written
+
+        if (!dequeuePosition.compareAndSet(position, position + 1))
+            return true; // someone else freed a slot; retry the offer
+
+        entries[index].clear();
+        sequences.lazySet(index, position + mask + 1);
+        dropCount.incrementAndGet();
+        return true;
+    }
+
+    // One slot on the ring. The fields are written by a producer and read
+    // by the consumer; the slot's sequence number orders the accesses.
+    // Up to two primitive arguments travel with a template; a double is
+    // carried in its raw long bits and flagged in doubleArgs (bit 0 for
+    // arg0, bit 1 for arg1) so that nothing is boxed.
+    static class LogEntry {
+        long millis;
+        Level level;
+        String tag;
+        String message;
+        Supplier<String> supplier;
+        int argCount;
+        int doubleArgs;
+        long arg0;
+        long arg1;
+
+        void copyFrom(LogEntry pOther) {
+            millis = pOther.millis;
+            level = pOther.level;
+            tag = pOther.tag;
+            message = pOther.message;
+            supplier = pOther.supplier;
+            argCount = pOther.argCount;
+            doubleArgs = pOther.doubleArgs;
+            arg0 = pOther.arg0;
+            arg1 = pOther.arg1;
+        }
+
+        void clear() {
+            tag = null;
+            message = null;
+            supplier = null;
+        }
+
+        // Called on the consumer thread only: builds the text of the entry
+        // as "TAG message".
+        void format(StringBuilder pBuilder) {
+            pBuilder.setLength(0);
+            pBuilder.append(tag).append(' ');
+            if (supplier != null) {
+                pBuilder.append(supplier.get());
+                return;
+            }
+
+            if (argCount == 0) {
+                pBuilder.append(message);
+                return;
+            }
+
+            appendTemplate(pBuilder, message, argCount, doubleArgs, arg0, arg1);
+        }
+
+        // Substitutes the arguments for the {} placeholders in order.
+        // Extra placeholders are left as they are. Also used by the
+        // BinaryLogDecoder, which sees templates in their raw form.
+        static void appendTemplate(StringBuilder pBuilder, String pTemplate,
+                                   int pArgCount, int pDoubleArgs, long pArg0, long pArg1) {
+            int argIndex = 0;
+            int start = 0;
+            int placeholder;
+            while (argIndex < pArgCount && (placeholder = pTemplate.indexOf("{}", start)) >= 0) {
+                pBuilder.append(pTemplate, start, placeholder);
+                long bits = (argIndex == 0) ? pArg0 : pArg1;
+                if ((pDoubleArgs & (1 << argIndex)) != 0)
+                    pBuilder.append(Double.longBitsToDouble(bits));
+                else
+                    pBuilder.append(bits);
+                start = placeholder + 2;
+                argIndex++;
+            }
+            pBuilder.append(pTemplate, start, pTemplate.length());
+        }
+    }
+}
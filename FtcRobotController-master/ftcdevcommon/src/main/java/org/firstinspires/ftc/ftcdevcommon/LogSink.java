@@ -0,0 +1,17 @@
+package org.firstinspires.ftc.ftcdevcommon;
+
+import java.io.IOException;
+
+// Destination for the entries that RobotLogCommon's LogWriter drains from
+// the log ring. All methods are called on the LogWriter thread only,
+// except that close() may also be called from closeLog() if the LogWriter
+// does not finish in time.
+interface LogSink {
+
+    void write(LogRingBuffer.LogEntry pEntry) throws IOException;
+
+    // Called after each batch of entries.
+    void flush() throws IOException;
+
+    void close();
+}
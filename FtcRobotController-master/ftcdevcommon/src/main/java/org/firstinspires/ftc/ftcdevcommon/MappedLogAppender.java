@@ -0,0 +1,218 @@
+package org.firstinspires.ftc.ftcdevcommon;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+import java.util.logging.Level;
+
+// Crash-safe appender for LogFormat.MAPPED. Each caller of RobotLogCommon
+// encodes its own entry, in the format described in BinaryLogFormat,
+// straight into a pre-sized memory-mapped segment of the log file. There
+// is no queue and no LogWriter thread: as soon as the call returns the
+// entry is in the operating system's page cache and it survives the
+// OpMode, or the whole robot controller app, being killed.
+//
+// Space in a segment is claimed with a single atomic add so callers never
+// block each other. A record's commit word is written last; BinaryLogDecoder
+// steps over a slot that has no commit word and goes on with the records
+// after it. When a segment is full the
+// files are rotated like those of the text log: <name>.0 is always the
+// newest and at most segmentCount segments are kept. If a new segment
+// can't be created, entries are dropped and counted, and the rotation is
+// tried again only after ROTATE_RETRY_NANOS, so a full disk never stalls
+// the callers.
+class MappedLogAppender {
+
+    private static final String TAG = "MappedLogAppender";
+    private static final int MAX_ATTEMPTS = 3; // per entry, each on a new segment
+    private static final long ROTATE_RETRY_NANOS = 1_000_000_000L;
+
+    private final String logFilePath;
+    private final int segmentSize;
+    private final int segmentCount;
+    private final AtomicLong dropCount = new AtomicLong();
+
+    private volatile Segment current;
+    private long nextRotateNanos; // guarded by this; after a failed rotation
+
+    MappedLogAppender(String pLogFilePath, int pSegmentSize, int pSegmentCount) throws IOException {
+        logFilePath = pLogFilePath;
+        segmentSize = pSegmentSize;
+        segmentCount = pSegmentCount;
+        current = newSegment();
+    }
+
+    // Called by any thread. A supplier is called here, on the caller's
+    // thread, because there is no LogWriter to defer it to; templates are
+    // still stored with their raw arguments and formatted by the decoder.
+    void append(long pMillis, Level pLevel, String pTag, String pMessage, Supplier<String> pSupplier,
+                int pArgCount, int pDoubleArgs, long pArg0, long pArg1) {
+        String message = (pSupplier != null) ? pSupplier.get() : pMessage;
+        boolean template = (pSupplier == null) && (pArgCount > 0);
+
+        int entrySize = BinaryLogFormat.RECORD_HEADER_SIZE + BinaryLogFormat.ENTRY_HEADER_SIZE +
+                BinaryLogFormat.stringSize(message);
+        if (template)
+            entrySize += 2 + (8 * pArgCount);
+
+        for (int attempt = 1; ; attempt++) {
+            Segment segment = current;
+            int tagId = defineTag(segment, pTag);
+            int index = (tagId < 0) ? -1 : segment.claim(BinaryLogFormat.alignedSize(entrySize));
+            if (index < 0) {
+                // Give up on the entry if there's no new segment to go on
+                // to, or if it doesn't fit even after a rotation, e.g.
+                // because it is larger than a segment.
+                if (attempt == MAX_ATTEMPTS || !rotate(segment)) {
+                    dropCount.incrementAndGet();
+                    return;
+                }
+                continue;
+            }
+
+            MappedByteBuffer buffer = segment.buffer;
+            buffer.put(index + 4, template ? BinaryLogFormat.RECORD_TEMPLATE : BinaryLogFormat.RECORD_MESSAGE);
+            int next = index + BinaryLogFormat.RECORD_HEADER_SIZE;
+            buffer.putLong(next, pMillis);
+            buffer.put(next + 8, BinaryLogFormat.levelCode(pLevel));
+            buffer.putShort(next + 9, (short) tagId);
+            next = BinaryLogFormat.putString(buffer, next + BinaryLogFormat.ENTRY_HEADER_SIZE, message);
+            if (template) {
+                buffer.put(next, (byte) pArgCount);
+                buffer.put(next + 1, (byte) pDoubleArgs);
+                buffer.putLong(next + 2, pArg0);
+                if (pArgCount > 1)
+                    buffer.putLong(next + 10, pArg1);
+            }
+
+            // Last: commit the record.
+            buffer.putInt(index, BinaryLogFormat.commitWord(entrySize));
+            return;
+        }
+    }
+
+    // Number of entries lost because a new segment could not be created
+    // or because they did not fit into one.
+    long getAndResetDropCount() {
+        return dropCount.getAndSet(0);
+    }
+
+    // Asks the operating system to write the current segment to storage.
+    // Not needed to survive a crash of the app, only of the device.
+    void force() {
+        current.buffer.force();
+    }
+
+    // Returns the id of the tag in the segment, writing the tag's record
+    // the first time the tag is used there, or -1 if the segment is full
+    // or already has BinaryLogFormat.MAX_TAGS tags.
+    // The space for the tag's record is claimed before its id is
+    // published, and an id is never taken back once it has been published,
+    // because other threads may already have used it in their records.
+    private int defineTag(Segment pSegment, String pTag) {
+        Integer tagId = pSegment.tagIds.get(pTag);
+        if (tagId != null)
+            return tagId;
+
+        if (pSegment.nextTagId.get() >= BinaryLogFormat.MAX_TAGS)
+            return -1;
+
+        int tagSize = BinaryLogFormat.RECORD_HEADER_SIZE + 2 + BinaryLogFormat.stringSize(pTag);
+        int index = pSegment.claim(BinaryLogFormat.alignedSize(tagSize));
+        if (index < 0)
+            return -1;
+
+        MappedByteBuffer buffer = pSegment.buffer;
+        int newTagId = pSegment.nextTagId.getAndIncrement();
+        tagId = (newTagId < BinaryLogFormat.MAX_TAGS) ? pSegment.tagIds.putIfAbsent(pTag, newTagId) : null;
+        if (newTagId >= BinaryLogFormat.MAX_TAGS || tagId != null) {
+            // Out of ids, or another thread got there first; the space is
+            // not needed.
+            buffer.put(index + 4, BinaryLogFormat.RECORD_PAD);
+            buffer.putInt(index, BinaryLogFormat.commitWord(tagSize));
+            return (tagId != null) ? tagId : -1;
+        }
+
+        buffer.put(index + 4, BinaryLogFormat.RECORD_TAG);
+        buffer.putShort(index + BinaryLogFormat.RECORD_HEADER_SIZE, (short) newTagId);
+        BinaryLogFormat.putString(buffer, index + BinaryLogFormat.RECORD_HEADER_SIZE + 2, pTag);
+        buffer.putInt(index, BinaryLogFormat.commitWord(tagSize));
+        return newTagId;
+    }
+
+    // Only one thread creates the next segment; the others find that
+    // current has already moved on and retry against the new segment.
+    // Returns false if current is still pFull, i.e. there is no new
+    // segment to retry against.
+    private synchronized boolean rotate(Segment pFull) {
+        if (current != pFull)
+            return true;
+
+        long now = System.nanoTime();
+        if (nextRotateNanos != 0 && now - nextRotateNanos < 0)
+            return false; // a recent attempt failed; don't retry the file I/O on every entry
+
+        try {
+            current = newSegment();
+            nextRotateNanos = 0;
+            return true;
+        } catch (IOException iex) {
+            // Don't take down the application because of a logging problem.
+            nextRotateNanos = now + ROTATE_RETRY_NANOS;
+            return false;
+        }
+    }
+
+    // Shifts <name>.0 to <name>.1 and so on, dropping the oldest file, and
+    // maps a new, pre-sized <name>.0.
+    private Segment newSegment() throws IOException {
+        for (int i = segmentCount - 1; i > 0; i--) {
+            File older = new File(logFilePath + "." + i);
+            File newer = new File(logFilePath + "." + (i - 1));
+            if (newer.exists() && (!older.exists() || older.delete()) && !newer.renameTo(older))
+                throw new IOException("Unable to rotate log segment " + newer.getPath());
+        }
+
+        MappedByteBuffer buffer;
+        try (RandomAccessFile file = new RandomAccessFile(logFilePath + ".0", "rw")) {
+            file.setLength(0); // make sure that all of the new segment reads as 0
+            file.setLength(segmentSize);
+            // The mapping stays valid after the file is closed.
+            buffer = file.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, segmentSize);
+        }
+
+        buffer.putInt(0, BinaryLogFormat.MAGIC);
+        buffer.putShort(4, BinaryLogFormat.VERSION); // then 2 bytes of 0 padding
+        return new Segment(buffer, BinaryLogFormat.FILE_HEADER_SIZE);
+    }
+
+    private static class Segment {
+        final MappedByteBuffer buffer;
+        final AtomicInteger position;
+        final ConcurrentHashMap<String, Integer> tagIds = new ConcurrentHashMap<>();
+        final AtomicInteger nextTagId = new AtomicInteger();
+
+        Segment(MappedByteBuffer pBuffer, int pStartPosition) {
+            buffer = pBuffer;
+            position = new AtomicInteger(pStartPosition);
+        }
+
+        // Claims pSize bytes and returns their index, or -1 if the segment
+        // is full. Once one claim fails every later claim fails too, so no
+        // record is ever written after the unused space at the end.
+        int claim(int pSize) {
+            int index = position.getAndAdd(pSize);
+            if (index < 0 || index + pSize > buffer.capacity()) {
+                position.set(buffer.capacity()); // keep the position from wrapping around
+                return -1;
+            }
+            return index;
+        }
+    }
+}
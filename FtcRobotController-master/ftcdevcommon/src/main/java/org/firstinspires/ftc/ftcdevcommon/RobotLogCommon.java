@@ -1,14 +1,11 @@
 package org.firstinspires.ftc.ftcdevcommon;
 
-import java.util.ArrayList;
 import java.util.Date;
 import java.util.concurrent.Callable;
 import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
-import java.util.concurrent.locks.Lock;
-import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
 import java.util.logging.FileHandler;
 import java.util.logging.Level;
 import java.util.logging.LogRecord;
@@ -23,25 +20,92 @@ public class RobotLogCommon {
     private static final Level DEFAULT_LEVEL = Level.FINE;
     private static Logger logger;
     private static FileHandler fileHandler;
+    private static LogSink logSink;
+    private static MappedLogAppender mappedAppender;
+
+    // TEXT is the familiar FTCRobotLog.txt written through a FileHandler.
+    // BINARY writes FTCRobotLog.bin in the compact format described in
+    // BinaryLogFormat, which is much cheaper for the LogWriter; use
+    // BinaryLogDecoder on a desktop to turn it back into text.
+    // MAPPED writes the same format but each caller writes its own entry
+    // into a memory-mapped segment of FTCRobotLog.bin, so an entry is safe
+    // as soon as it is logged even if the OpMode is killed; there is no
+    // ring buffer and no LogWriter.
+    public enum LogFormat {
+        TEXT, BINARY, MAPPED
+    }
+
+    private static final int LOG_FILE_SIZE_LIMIT = 1000000;
+    private static final int LOG_FILE_COUNT = 5;
+
+    // What to do when a log entry arrives and the ring buffer between the
+    // callers and the LogWriter is full. Either way the dropped entries are
+    // counted and the count is written to the log.
+    public enum OverflowPolicy {
+        DROP_NEWEST, // discard the entry that is being logged
+        DROP_OLDEST  // discard the oldest entry that has not been written
+    }
+
+    private static final int LOG_RING_CAPACITY = 4096; // must be a power of 2
+    private static final int LOG_WRITER_BATCH_SIZE = 256;
+    private static final long SHUTDOWN_PUT_TIMEOUT_NANOS = 1_000_000_000L;
+    private static final long CLOSE_WAIT_MS = 250; // per slice; see closeLog()
 
     private static CompletableFuture<Void> logWriterFuture;
-    private static final Lock logQueueLock = new ReentrantLock();
 
-    private static final LinkedBlockingQueue<Pair<Level, String>> logEntryQueue = new LinkedBlockingQueue<>();
-    private static boolean loggerInitialized = false;
-    private static boolean closeLogWriter = false;
+    private static final LogRingBuffer logRing = new LogRingBuffer(LOG_RING_CAPACITY);
+    private static final LogRateLimiter rateLimiter = new LogRateLimiter();
+    private static volatile boolean loggerInitialized = false;
+    private static volatile boolean closeLogWriter = false;
 
     // Wanted to use a MemoryHandler to log to a buffer but found out here --
     // https://chromium.googlesource.com/android_tools/+/refs/heads/master/sdk/sources/android-25/java/util/logging/MemoryHandler.java
-    // that push() is synchronous with the linked FileHandler. So we'll use a BlockingQueue instead.
+    // that push() is synchronous with the linked FileHandler. We used a
+    // BlockingQueue for a while but that meant a lock and an allocation for
+    // every log entry, so now we use a pre-allocated ring buffer. Callers
+    // never block (only closeLog() waits for room for its last entry); if
+    // the LogWriter falls behind, entries are dropped according to the
+    // OverflowPolicy.
     //## There's nothing wrong with a static initializer block but having an initialize() method
     // gives the caller more flexibility in building up the working directory string.
     public static synchronized void initialize(String pLogPath) {
+        initialize(pLogPath, LogFormat.TEXT);
+    }
+
+    // The log may be closed and initialized again, e.g. once for a warm-up
+    // when the robot controller starts and once for each OpMode after that.
+    public static synchronized void initialize(String pLogPath, LogFormat pLogFormat) {
         if (loggerInitialized)
             return;
 
+        // A LogWriter that closeLog() gave up waiting for must see the close
+        // flag before it is cleared for the new LogWriter.
+        if (logWriterFuture != null && !logWriterFuture.isDone()) {
+            try {
+                logWriterFuture.get(250, TimeUnit.MILLISECONDS);
+            } catch (Throwable t) {
+                // Swallow - don't take down the application because of a logging problem.
+            }
+        }
+        closeLogWriter = false;
+
         try {
             logger = Logger.getLogger(RobotLogCommon.class.getName());
+            logger.setUseParentHandlers(false);
+            logger.setLevel(DEFAULT_LEVEL);
+
+            if (pLogFormat == LogFormat.MAPPED) {
+                mappedAppender = new MappedLogAppender(pLogPath + "FTCRobotLog.bin", LOG_FILE_SIZE_LIMIT, LOG_FILE_COUNT);
+                loggerInitialized = true;
+                return;
+            }
+
+            if (pLogFormat == LogFormat.BINARY) {
+                // The Logger is still used for its level but it has no handler.
+                logSink = new BinaryLogSink(pLogPath + "FTCRobotLog.bin", LOG_FILE_SIZE_LIMIT, LOG_FILE_COUNT);
+                startLogWriter();
+                return;
+            }
 
             // System.setProperty("java.util.logging.config.file",
             // "Files/logging.properties");
@@ -54,8 +118,7 @@ public class RobotLogCommon {
             // limit, the file count, and the append flag - only the append flag is
             // honored. A single log file is created that grows indefinitely. But if I
             // use the next line, everything works.
-            fileHandler = new FileHandler(pLogPath + "FTCRobotLog.txt", 1000000, 5, true);
-            logger.setUseParentHandlers(false);
+            fileHandler = new FileHandler(pLogPath + "FTCRobotLog.txt", LOG_FILE_SIZE_LIMIT, LOG_FILE_COUNT, true);
             fileHandler.setFormatter(new SimpleFormatter() {
                 // original private static final String format = "[%1$tF %1$tT] [%2$-7s] %3$s
                 // %n";
@@ -74,19 +137,22 @@ public class RobotLogCommon {
             });
 
             logger.addHandler(fileHandler);
-            logger.setLevel(DEFAULT_LEVEL);
-
-            // Start a CompletableFuture for writing out the log.
-            LogWriter logWriter = new LogWriter();
-            logWriterFuture = CompletableFuture.supplyAsync(logWriter::call);
-
-            loggerInitialized = true;
+            logSink = new TextLogSink();
+            startLogWriter();
 
         } catch (Exception exception) {
             throw new AutonomousLoggingException(TAG, "Error in initialization of logging: " + exception.getMessage());
         }
     }
 
+    private static void startLogWriter() {
+        // Start a CompletableFuture for writing out the log.
+        LogWriter logWriter = new LogWriter();
+        logWriterFuture = CompletableFuture.supplyAsync(logWriter::call);
+
+        loggerInitialized = true;
+    }
+
     public static void setMinimimLoggingLevel(final Level pLoggingLevel) {
         logger.setLevel(pLoggingLevel);
     }
@@ -95,107 +161,430 @@ public class RobotLogCommon {
         return logger.getLevel();
     }
 
+    public static void setOverflowPolicy(final OverflowPolicy pOverflowPolicy) {
+        logRing.setOverflowPolicy(pOverflowPolicy);
+    }
+
+    // Limits the entries for a tag at the limit's level and below. The
+    // suppressed entries are counted and a summary line is logged for the
+    // tag every few seconds and when the log is closed. With the TEXT and
+    // BINARY formats the LogWriter also writes the summaries that are due
+    // when the tag itself has gone quiet; with MAPPED a summary waits for
+    // the next entry of the tag or for closeLog().
+    public static void setTagLimit(final TagLimit pTagLimit) {
+        rateLimiter.setLimit(pTagLimit);
+    }
+
+    public static void clearTagLimits() {
+        rateLimiter.clear();
+    }
+
     public static void e(String pTAG, String pLogMessage) {
-        enqueueLogEntry(Level.SEVERE, pTAG + " " + pLogMessage);
+        enqueueLogEntry(Level.SEVERE, pTAG, pLogMessage);
     }
 
     public static void c(String pTAG, String pLogMessage) {
-        enqueueLogEntry(Level.CONFIG, pTAG + " " + pLogMessage);
+        enqueueLogEntry(Level.CONFIG, pTAG, pLogMessage);
     }
 
     public static void i(String pTAG, String pLogMessage) {
-        enqueueLogEntry(Level.INFO, pTAG + " " + pLogMessage);
+        enqueueLogEntry(Level.INFO, pTAG, pLogMessage);
     }
 
     public static void d(String pTAG, String pLogMessage) {
-        enqueueLogEntry(Level.FINE, pTAG + " " + pLogMessage);
+        enqueueLogEntry(Level.FINE, pTAG, pLogMessage);
     }
 
     public static void v(String pTAG, String pLogMessage) {
-        enqueueLogEntry(Level.FINER, pTAG + " " + pLogMessage);
+        enqueueLogEntry(Level.FINER, pTAG, pLogMessage);
     }
 
     public static void vv(String pTAG, String pLogMessage) {
-        enqueueLogEntry(Level.FINEST, pTAG + " " + pLogMessage);
+        enqueueLogEntry(Level.FINEST, pTAG, pLogMessage);
+    }
+
+    // Deferred formatting for the hot path, e.g.
+    //   RobotLogCommon.d(TAG, "Pause by {} milliseconds", sleepValue);
+    // instead of
+    //   RobotLogCommon.d(TAG, "Pause by " + sleepValue + " milliseconds");
+    // The level is checked first and the arguments travel unboxed on the
+    // log ring; the {} placeholders are filled in on the LogWriter thread,
+    // so nothing is built at all if the level is filtered out. An int
+    // argument widens to long; with two arguments there is an overload for
+    // every mix of long and double so that an int is never printed as a
+    // double.
+    public static void i(String pTAG, String pFormat, long pArg) {
+        enqueueLogEntry(Level.INFO, pTAG, pFormat, 1, 0, pArg, 0);
+    }
+
+    public static void i(String pTAG, String pFormat, double pArg) {
+        enqueueLogEntry(Level.INFO, pTAG, pFormat, 1, 0b01, Double.doubleToRawLongBits(pArg), 0);
+    }
+
+    public static void i(String pTAG, String pFormat, long pArg1, long pArg2) {
+        enqueueLogEntry(Level.INFO, pTAG, pFormat, 2, 0, pArg1, pArg2);
+    }
+
+    public static void i(String pTAG, String pFormat, double pArg1, double pArg2) {
+        enqueueLogEntry(Level.INFO, pTAG, pFormat, 2, 0b11, Double.doubleToRawLongBits(pArg1), Double.doubleToRawLongBits(pArg2));
+    }
+
+    public static void i(String pTAG, String pFormat, long pArg1, double pArg2) {
+        enqueueLogEntry(Level.INFO, pTAG, pFormat, 2, 0b10, pArg1, Double.doubleToRawLongBits(pArg2));
+    }
+
+    public static void i(String pTAG, String pFormat, double pArg1, long pArg2) {
+        enqueueLogEntry(Level.INFO, pTAG, pFormat, 2, 0b01, Double.doubleToRawLongBits(pArg1), pArg2);
+    }
+
+    public static void d(String pTAG, String pFormat, long pArg) {
+        enqueueLogEntry(Level.FINE, pTAG, pFormat, 1, 0, pArg, 0);
+    }
+
+    public static void d(String pTAG, String pFormat, double pArg) {
+        enqueueLogEntry(Level.FINE, pTAG, pFormat, 1, 0b01, Double.doubleToRawLongBits(pArg), 0);
+    }
+
+    public static void d(String pTAG, String pFormat, long pArg1, long pArg2) {
+        enqueueLogEntry(Level.FINE, pTAG, pFormat, 2, 0, pArg1, pArg2);
+    }
+
+    public static void d(String pTAG, String pFormat, double pArg1, double pArg2) {
+        enqueueLogEntry(Level.FINE, pTAG, pFormat, 2, 0b11, Double.doubleToRawLongBits(pArg1), Double.doubleToRawLongBits(pArg2));
+    }
+
+    public static void d(String pTAG, String pFormat, long pArg1, double pArg2) {
+        enqueueLogEntry(Level.FINE, pTAG, pFormat, 2, 0b10, pArg1, Double.doubleToRawLongBits(pArg2));
+    }
+
+    public static void d(String pTAG, String pFormat, double pArg1, long pArg2) {
+        enqueueLogEntry(Level.FINE, pTAG, pFormat, 2, 0b01, Double.doubleToRawLongBits(pArg1), pArg2);
+    }
+
+    public static void v(String pTAG, String pFormat, long pArg) {
+        enqueueLogEntry(Level.FINER, pTAG, pFormat, 1, 0, pArg, 0);
+    }
+
+    public static void v(String pTAG, String pFormat, double pArg) {
+        enqueueLogEntry(Level.FINER, pTAG, pFormat, 1, 0b01, Double.doubleToRawLongBits(pArg), 0);
+    }
+
+    public static void v(String pTAG, String pFormat, long pArg1, long pArg2) {
+        enqueueLogEntry(Level.FINER, pTAG, pFormat, 2, 0, pArg1, pArg2);
+    }
+
+    public static void v(String pTAG, String pFormat, double pArg1, double pArg2) {
+        enqueueLogEntry(Level.FINER, pTAG, pFormat, 2, 0b11, Double.doubleToRawLongBits(pArg1), Double.doubleToRawLongBits(pArg2));
+    }
+
+    public static void v(String pTAG, String pFormat, long pArg1, double pArg2) {
+        enqueueLogEntry(Level.FINER, pTAG, pFormat, 2, 0b10, pArg1, Double.doubleToRawLongBits(pArg2));
+    }
+
+    public static void v(String pTAG, String pFormat, double pArg1, long pArg2) {
+        enqueueLogEntry(Level.FINER, pTAG, pFormat, 2, 0b01, Double.doubleToRawLongBits(pArg1), pArg2);
+    }
+
+    public static void vv(String pTAG, String pFormat, long pArg) {
+        enqueueLogEntry(Level.FINEST, pTAG, pFormat, 1, 0, pArg, 0);
+    }
+
+    public static void vv(String pTAG, String pFormat, double pArg) {
+        enqueueLogEntry(Level.FINEST, pTAG, pFormat, 1, 0b01, Double.doubleToRawLongBits(pArg), 0);
+    }
+
+    public static void vv(String pTAG, String pFormat, long pArg1, long pArg2) {
+        enqueueLogEntry(Level.FINEST, pTAG, pFormat, 2, 0, pArg1, pArg2);
     }
 
-    // Even though the BlockingQueue is thread-safe there's a warning about drainTo:
-    // "A failure encountered while attempting to add elements to collection c
-    // [during the drainTo] may result in elements being in neither, either or both
-    // collections when the associated exception is thrown."
-    private static synchronized void enqueueLogEntry(Level pLevel, String pLogString) {
-        if (!loggerInitialized)
+    public static void vv(String pTAG, String pFormat, double pArg1, double pArg2) {
+        enqueueLogEntry(Level.FINEST, pTAG, pFormat, 2, 0b11, Double.doubleToRawLongBits(pArg1), Double.doubleToRawLongBits(pArg2));
+    }
+
+    public static void vv(String pTAG, String pFormat, long pArg1, double pArg2) {
+        enqueueLogEntry(Level.FINEST, pTAG, pFormat, 2, 0b10, pArg1, Double.doubleToRawLongBits(pArg2));
+    }
+
+    public static void vv(String pTAG, String pFormat, double pArg1, long pArg2) {
+        enqueueLogEntry(Level.FINEST, pTAG, pFormat, 2, 0b01, Double.doubleToRawLongBits(pArg1), pArg2);
+    }
+
+    // For messages that need more than two numbers. The supplier is only
+    // called if the level is enabled, and then on the LogWriter thread, so
+    // it must not depend on state that the caller will change afterwards.
+    public static void i(String pTAG, Supplier<String> pMessageSupplier) {
+        enqueueLogEntry(Level.INFO, pTAG, pMessageSupplier);
+    }
+
+    public static void d(String pTAG, Supplier<String> pMessageSupplier) {
+        enqueueLogEntry(Level.FINE, pTAG, pMessageSupplier);
+    }
+
+    public static void v(String pTAG, Supplier<String> pMessageSupplier) {
+        enqueueLogEntry(Level.FINER, pTAG, pMessageSupplier);
+    }
+
+    public static void vv(String pTAG, Supplier<String> pMessageSupplier) {
+        enqueueLogEntry(Level.FINEST, pTAG, pMessageSupplier);
+    }
+
+    private static void enqueueLogEntry(Level pLevel, String pTAG, String pLogMessage) {
+        enqueueLogEntry(pLevel, pTAG, pLogMessage, null, 0, 0, 0, 0);
+    }
+
+    private static void enqueueLogEntry(Level pLevel, String pTAG, String pFormat,
+                                        int pArgCount, int pDoubleArgs, long pArg0, long pArg1) {
+        enqueueLogEntry(pLevel, pTAG, pFormat, null, pArgCount, pDoubleArgs, pArg0, pArg1);
+    }
+
+    private static void enqueueLogEntry(Level pLevel, String pTAG, Supplier<String> pMessageSupplier) {
+        enqueueLogEntry(pLevel, pTAG, null, pMessageSupplier, 0, 0, 0, 0);
+    }
+
+    // Not synchronized: the ring buffer is safe for any number of threads
+    // and never blocks the caller. The tag and the message are kept apart
+    // until the LogWriter formats the entry.
+    private static void enqueueLogEntry(Level pLevel, String pTAG, String pLogMessage, Supplier<String> pMessageSupplier,
+                                        int pArgCount, int pDoubleArgs, long pArg0, long pArg1) {
+        if (!loggerInitialized) {
+            if (logger != null)
+                return; // the log has been closed
             throw new AutonomousLoggingException(TAG, "Logging subsystem is not initiaalized"); // desperation time
+        }
 
         // Don't enqueue if the log entry is below the current minimum logging
         // level.
         if (!logger.isLoggable(pLevel))
             return;
 
-        logQueueLock.lock();
-        try {
-            logEntryQueue.add(Pair.create(pLevel, pLogString));
-        } finally {
-            logQueueLock.unlock();
+        if (rateLimiter.isActive()) {
+            LogRateLimiter.TagLimiter limiter = rateLimiter.limiterFor(pTAG, pLevel);
+            if (limiter != null) {
+                long now = System.nanoTime();
+                if (!limiter.allow(now))
+                    return;
+
+                long suppressed = limiter.takeSummary(now);
+                if (suppressed > 0)
+                    logSuppressed(limiter.tag, suppressed);
+            }
         }
+
+        writeLogEntry(pLevel, pTAG, pLogMessage, pMessageSupplier, pArgCount, pDoubleArgs, pArg0, pArg1);
+    }
+
+    private static void logSuppressed(String pTAG, long pSuppressed) {
+        writeLogEntry(Level.INFO, pTAG, "Rate limit: suppressed {} log entries", null, 1, 0, pSuppressed, 0);
+    }
+
+    private static void writeLogEntry(Level pLevel, String pTAG, String pLogMessage, Supplier<String> pMessageSupplier,
+                                      int pArgCount, int pDoubleArgs, long pArg0, long pArg1) {
+        MappedLogAppender appender = mappedAppender; // closeLog() may clear the field
+        if (appender != null)
+            appender.append(System.currentTimeMillis(), pLevel, pTAG, pLogMessage, pMessageSupplier,
+                    pArgCount, pDoubleArgs, pArg0, pArg1);
+        else
+            logRing.offer(System.currentTimeMillis(), pLevel, pTAG, pLogMessage, pMessageSupplier,
+                    pArgCount, pDoubleArgs, pArg0, pArg1);
     }
 
     public static synchronized void closeLog() {
-        if (!loggerInitialized)
+        if (!loggerInitialized) {
+            if (logger != null)
+                return; // only close once
             throw new AutonomousLoggingException(TAG, "Can't close a log that's not open"); // desperation time
+        }
 
-        // See comments above at enqueueLogEntry.
-        logQueueLock.lock();
-        try {
-            if (closeLogWriter)
-                return; // only close once
+        rateLimiter.drainSuppressed(RobotLogCommon::logSuppressed);
+
+        // Everything is already in the mapped log; there's nothing to wait for.
+        if (mappedAppender != null) {
             closeLogWriter = true;
-            logEntryQueue.add(Pair.create(Level.INFO, TAG + " Shutting down log"));
-        } finally {
-            logQueueLock.unlock();
+            long dropped = mappedAppender.getAndResetDropCount();
+            if (dropped > 0)
+                mappedAppender.append(System.currentTimeMillis(), Level.WARNING, TAG, "Unable to write {} entries to the mapped log", null, 1, 0, dropped, 0);
+            mappedAppender.append(System.currentTimeMillis(), Level.INFO, TAG, "Shutting down log", null, 0, 0, 0, 0);
+            mappedAppender.force();
+            loggerInitialized = false;
+            mappedAppender = null;
+            return;
         }
 
+        // The shutdown entry goes on the ring before the flag is set so that
+        // the LogWriter always writes it out. It waits for a free slot
+        // rather than being dropped by the OverflowPolicy when the ring is
+        // full at the end of a burst.
+        logRing.put(System.currentTimeMillis(), Level.INFO, TAG, "Shutting down log", null, 0, 0, 0, 0,
+                SHUTDOWN_PUT_TIMEOUT_NANOS);
+        closeLogWriter = true;
+        logRing.wakeConsumer();
+
         try {
-            // Wait for the log writer to shut down.
-            // Use a timeout value so that we never get hung up here.
-            logWriterFuture.get(250, TimeUnit.MILLISECONDS);
+            // Wait for the log writer to shut down. A full ring takes the
+            // TEXT writer well over a second to drain, so keep waiting as
+            // long as the ring got shorter during the last slice; a writer
+            // that makes no progress never gets us hung up here.
+            long lastDepth = Long.MAX_VALUE;
+            long depth;
+            while (true) {
+                try {
+                    logWriterFuture.get(CLOSE_WAIT_MS, TimeUnit.MILLISECONDS);
+                    break;
+                } catch (TimeoutException tex) {
+                    depth = logRing.size();
+                    if (depth >= lastDepth)
+                        throw tex;
+                    lastDepth = depth;
+                }
+            }
         } catch (Throwable t) {
-            if (t instanceof TimeoutException) {
+            if (t instanceof TimeoutException && fileHandler != null) {
                 logger.info(TAG + " Timed out waiting for the final log entries to be written out");
             }
             // Swallow all other exceptions - don't take down the application because of a logging problem.
         } finally {
+            loggerInitialized = false;
+            logSink.close();
+            if (fileHandler != null) {
+                logger.removeHandler(fileHandler); // initialize() adds a new one
+                fileHandler = null;
+            }
+        }
+    }
+
+    // A rate limit and/or sampling rate for the entries of one tag (or of
+    // all tags, "*") at a given level and below, e.g. from the
+    // <log_limits> element of RobotAction.xml. A perSecond of 0 means no
+    // rate limit; a sampleEvery of N keeps 1 in N entries.
+    public static class TagLimit {
+        public final String tag;
+        public final Level level;
+        public final double perSecond;
+        public final int burst;
+        public final int sampleEvery;
+
+        public TagLimit(String pTag, Level pLevel, double pPerSecond, int pBurst, int pSampleEvery) {
+            tag = pTag;
+            level = pLevel;
+            perSecond = pPerSecond;
+            burst = pBurst;
+            sampleEvery = pSampleEvery;
+        }
+    }
+
+    // Formats each entry as text and hands it to the Logger and so to the
+    // FileHandler. The timestamp is the time the entry was logged, not the
+    // time it was written.
+    private static class TextLogSink implements LogSink {
+        private final StringBuilder text = new StringBuilder(256);
+
+        @Override
+        public void write(LogRingBuffer.LogEntry pEntry) {
+            pEntry.format(text);
+            LogRecord logRecord = new LogRecord(pEntry.level, text.toString());
+            logRecord.setMillis(pEntry.millis);
+            logger.log(logRecord);
+        }
+
+        @Override
+        public void flush() {
+            // The FileHandler flushes every record.
+        }
+
+        @Override
+        public void close() {
             fileHandler.close();
         }
     }
 
+    // Drains the ring buffer in batches and writes the entries to the log.
     private static class LogWriter implements Callable<Void> {
+        private final LogRingBuffer.LogEntry internalEntry = new LogRingBuffer.LogEntry();
+        private final LogRateLimiter.SummaryConsumer summaryWriter = this::writeSuppressed;
+
         public Void call() {
-            ArrayList<Pair<Level, String>> drain = new ArrayList<>();
+            LogRingBuffer.LogEntry[] batch = new LogRingBuffer.LogEntry[LOG_WRITER_BATCH_SIZE];
+            for (int i = 0; i < batch.length; i++)
+                batch[i] = new LogRingBuffer.LogEntry();
+
             boolean closeNow = false;
             while (true) {
-                try {
-                    drain.clear();
-                    drain.add(logEntryQueue.take()); // block here
-                    logQueueLock.lock();
-                    // Will get queue entries beyond the first.
-                    logEntryQueue.drainTo(drain);
-
-                    if (closeLogWriter) {
-                        closeNow = true;
-                        logger.info(TAG + " Closing log and writing out the last " + drain.size() + " entries on the queue");
+                // Test the flag before draining: once it's set, one more pass
+                // is guaranteed to pick up everything that was enqueued before
+                // closeLog().
+                if (closeLogWriter)
+                    closeNow = true;
+
+                int count = logRing.drainTo(batch);
+                for (int i = 0; i < count; i++) {
+                    try {
+                        logSink.write(batch[i]);
+                    } catch (Exception ex) {
+                        // A bad template or a failing supplier must not stop the LogWriter.
+                        writeInternal(Level.WARNING, "Unable to write log entry for " + batch[i].tag + ": " + ex);
                     }
-
-                } catch (InterruptedException iex) {
-                    // Swallow exception - we don't want to take down the application because of a
-                    // logging problem.
-                } finally {
-                    logQueueLock.unlock();
+                    batch[i].clear();
                 }
 
-                drain.forEach(e -> logger.log(e.first, e.second));
-                if (closeNow)
+                long dropped = logRing.getAndResetDropCount();
+                if (dropped > 0)
+                    writeInternal(Level.WARNING, "Log ring buffer overflow: dropped " + dropped + " entries");
+
+                if (count == LOG_WRITER_BATCH_SIZE)
+                    continue; // there may be more on the ring
+
+                if (closeNow) {
+                    writeInternal(Level.INFO, "Closing log");
+                    flushSink();
                     return null; // stop now
+                }
+
+                // The ring wakes the LogWriter at least every 100 ms.
+                rateLimiter.drainDueSummaries(System.nanoTime(), summaryWriter);
+
+                flushSink();
+                if (count == 0)
+                    logRing.awaitEntries(); // park until there is more to write
+            }
+        }
+
+        // A rate limit summary for a tag that has gone quiet, as
+        // logSuppressed() but straight to the sink.
+        private void writeSuppressed(String pTAG, long pSuppressed) {
+            internalEntry.millis = System.currentTimeMillis();
+            internalEntry.level = Level.INFO;
+            internalEntry.tag = pTAG;
+            internalEntry.message = "Rate limit: suppressed {} log entries";
+            internalEntry.argCount = 1;
+            internalEntry.arg0 = pSuppressed;
+            try {
+                logSink.write(internalEntry);
+            } catch (Exception ex) {
+                // Swallow - don't take down the application because of a logging problem.
+            }
+            internalEntry.clear();
+            internalEntry.argCount = 0;
+        }
+
+        // Messages from the LogWriter itself go straight to the sink.
+        private void writeInternal(Level pLevel, String pMessage) {
+            internalEntry.millis = System.currentTimeMillis();
+            internalEntry.level = pLevel;
+            internalEntry.tag = TAG;
+            internalEntry.message = pMessage;
+            try {
+                logSink.write(internalEntry);
+            } catch (Exception ex) {
+                // Swallow - don't take down the application because of a logging problem.
+            }
+            internalEntry.clear();
+        }
+
+        private void flushSink() {
+            try {
+                logSink.flush();
+            } catch (Exception ex) {
+                // Swallow - don't take down the application because of a logging problem.
             }
         }
     }
@@ -5,15 +5,30 @@ import org.w3c.dom.Element;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 // Generic access to XML elements via XPath.
 public class XPathAccess {
 
 	// --------- CLASS VARIABLES ----------
 	private static final String TAG = "XPathAccess";
+	private static final int EXPRESSION_CACHE_SIZE = 64; // per thread
+
+	// Neither XPath nor a compiled XPathExpression is thread-safe, so each
+	// thread gets its own XPath and its own LRU cache of compiled
+	// expressions keyed by path. Once a path such as "ms" has been seen,
+	// a lookup costs a map hit instead of a parse and compile, and
+	// constructing an XPathAccess costs nothing at all, so there's no need
+	// to pool them.
+	private static final ThreadLocal<ExpressionCache> expressionCache = new ThreadLocal<ExpressionCache>() {
+		@Override
+		protected ExpressionCache initialValue() {
+			return new ExpressionCache();
+		}
+	};
 
-	private final XPath xpath;
 	private final Element xmlElement;
 
 	// --------- CONSTRUCTORS ----------
@@ -21,8 +36,6 @@ public class XPathAccess {
 	// It would be possible to pass the element in to every method
 	// but the syntax is simpler this way.
 	public XPathAccess(RobotXMLElement pRobotXMLElement) {
-		XPathFactory xpathFactory = XPathFactory.newInstance();
-		xpath = xpathFactory.newXPath();
 		xmlElement = pRobotXMLElement.getRobotXMLElement();
 	}
 
@@ -168,13 +181,13 @@ public class XPathAccess {
 
 	// Assumes that the path contains a valid XPath attribute expression.
 	private String getAttributeText(String pPath) throws XPathExpressionException {
-		XPathExpression expr = xpath.compile(pPath);
+		XPathExpression expr = expressionCache.get().getAttributeExpression(pPath);
 		// Trim needed because only validating parsers will strip white space.
 		return ((String) expr.evaluate(xmlElement, XPathConstants.STRING)).trim();
 	}
 
 	public String getElementText(String pPath) throws XPathExpressionException {
-        XPathExpression expr = xpath.compile(pPath + "/text()");
+        XPathExpression expr = expressionCache.get().getElementExpression(pPath);
         // Trim needed because only validating parsers will strip white space.
 		return ((String) expr.evaluate(xmlElement, XPathConstants.STRING)).trim();
 	}
@@ -217,4 +230,44 @@ public class XPathAccess {
 			return false;
 		throw new AutonomousRobotException(TAG, "Value in " + pNodeName + ": " + pBoolText + " is not a boolean");
 	}
+
+	// One per thread; see expressionCache above. Element paths are cached
+	// under the path as given so that the "/text()" suffix is only
+	// appended when the expression is compiled.
+	private static class ExpressionCache {
+		private final XPath xpath = XPathFactory.newInstance().newXPath();
+		private final Map<String, XPathExpression> elementExpressions = new LruMap();
+		private final Map<String, XPathExpression> attributeExpressions = new LruMap();
+
+		XPathExpression getElementExpression(String pPath) throws XPathExpressionException {
+			XPathExpression expr = elementExpressions.get(pPath);
+			if (expr == null) {
+				expr = xpath.compile(pPath + "/text()");
+				elementExpressions.put(pPath, expr);
+			}
+			return expr;
+		}
+
+		XPathExpression getAttributeExpression(String pPath) throws XPathExpressionException {
+			XPathExpression expr = attributeExpressions.get(pPath);
+			if (expr == null) {
+				expr = xpath.compile(pPath);
+				attributeExpressions.put(pPath, expr);
+			}
+			return expr;
+		}
+	}
+
+	// Access-ordered LinkedHashMap that evicts the least recently used
+	// expression once it holds more than EXPRESSION_CACHE_SIZE.
+	private static class LruMap extends LinkedHashMap<String, XPathExpression> {
+		LruMap() {
+			super(16, 0.75f, true);
+		}
+
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<String, XPathExpression> pEldest) {
+			return size() > EXPRESSION_CACHE_SIZE;
+		}
+	}
 }